@@ -0,0 +1,64 @@
+/**
+ * AllocationBenchmark.java
+ *
+ * Measures how much memory Minimax allocates while it searches: searches
+ * the fixed suite of positions at each difficulty depth and beyond. Run
+ * it with the GC profiler,
+ *
+ *   java -jar target/benchmarks.jar AllocationBenchmark -prof gc
+ *
+ * where gc.alloc.rate.norm is the bytes allocated per search of the
+ * suite. The transposition table and the Minimax objects are made before
+ * each search, so only the search itself is counted.
+ *
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AllocationBenchmark
+{
+	@Param({"2", "4", "6", "8", "10"})
+	public int depth;
+
+	private Object[] positions;
+	private Object table;
+	private Object[] comps;
+
+	@Setup
+	public void setup() throws Throwable
+	{
+		positions = Engine.suite();
+		table = (Object)Engine.NEW_TABLE.invokeExact(20);
+		comps = new Object[positions.length];
+	}
+
+	@Setup(Level.Invocation)
+	public void prepare() throws Throwable
+	{
+		for (int i=0; i<positions.length; i++)
+		{
+			comps[i] = (Object)Engine.NEW_SEARCH.invokeExact(positions[i],depth,table);
+		}
+	}
+
+	@Benchmark
+	public int search() throws Throwable
+	{
+		int sum = 0;
+		for (int i=0; i<comps.length; i++)
+		{
+			sum += (int)Engine.CALC_VALUE.invokeExact(comps[i]);
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,177 @@
+/**
+ * Engine.java
+ *
+ * Gives the benchmarks and checks access to the engine classes, and holds
+ * the fixed positions they measure.
+ *
+ * The engine lives in the default package, which no other package can
+ * import, and JMH will not generate benchmarks in the default package.
+ * So the engine's methods are looked up once as method handles; being
+ * static final, the JIT inlines them as if they were called directly.
+ *
+ */
+
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+final class Engine
+{
+	//Fixed positions, as the columns played from the empty grid, the
+	// player moving first; the computer is to move in each.
+	static final String OPENING = "332";
+	static final String MIDDLEGAME = "3320343663322";
+	static final String NEAR_FULL = "156245435421442634125326536532300";
+
+	//The positions the whole-search benchmarks search one after another,
+	// from the opening into the middlegame, given the same way.
+	static final String[] SUITE = {
+		"332",
+		"44345",
+		"422522443",
+		"3320343663322",
+		"34405254330655533",
+		"550221430354433413455",
+		"0422416203135531443303564",
+		"22334",
+		"3232565",
+		"016632115",
+		"33344421022",
+		"0635353126645"
+	};
+
+	static final MethodHandle NEW_MODEL;
+	static final MethodHandle DROP;
+	static final MethodHandle UNDO;
+	static final MethodHandle WIN;
+	static final MethodHandle FULL;
+	static final MethodHandle GET_GRID;
+	static final MethodHandle GET_PLAYER;
+	static final MethodHandle GET_POSITION;
+	static final MethodHandle EVAL;
+	static final MethodHandle NEW_MINIMAX;
+	static final MethodHandle CALC_VALUE;
+	static final MethodHandle NEW_TABLE;
+	static final MethodHandle NEW_SEARCH;
+	static final MethodHandle SET_THREADS;
+	static final MethodHandle SET_PRINCIPAL_VARIATION;
+	static final MethodHandle GET_SCORE;
+	static final MethodHandle NEW_EVALUATOR;
+	static final MethodHandle EVALUATOR_SET;
+	static final MethodHandle EVALUATOR_PLAY;
+	static final MethodHandle EVALUATOR_UNDO;
+	static final MethodHandle EVALUATOR_SCORE;
+
+	static
+	{
+		try
+		{
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			Class<?> model = Class.forName("ConnectFourModel");
+			Class<?> minimax = Class.forName("Minimax");
+			Class<?> position = Class.forName("Position");
+			Class<?> table = Class.forName("TranspositionTable");
+			Class<?> evaluator = Class.forName("Evaluator");
+			NEW_MODEL = lookup.findConstructor(model,MethodType.methodType(void.class))
+				.asType(MethodType.methodType(Object.class));
+			DROP = lookup.findVirtual(model,"drop",MethodType.methodType(int.class,int.class))
+				.asType(MethodType.methodType(int.class,Object.class,int.class));
+			UNDO = lookup.findVirtual(model,"undo",MethodType.methodType(int.class,int.class))
+				.asType(MethodType.methodType(int.class,Object.class,int.class));
+			WIN = lookup.findVirtual(model,"win",MethodType.methodType(boolean.class))
+				.asType(MethodType.methodType(boolean.class,Object.class));
+			FULL = lookup.findVirtual(model,"full",MethodType.methodType(boolean.class))
+				.asType(MethodType.methodType(boolean.class,Object.class));
+			GET_GRID = lookup.findVirtual(model,"getGrid",MethodType.methodType(int[][].class))
+				.asType(MethodType.methodType(int[][].class,Object.class));
+			GET_PLAYER = lookup.findVirtual(model,"getPlayer",MethodType.methodType(int.class))
+				.asType(MethodType.methodType(int.class,Object.class));
+			GET_POSITION = lookup.findVirtual(model,"getPosition",MethodType.methodType(position))
+				.asType(MethodType.methodType(Object.class,Object.class));
+			EVAL = lookup.findStatic(minimax,"eval",
+				MethodType.methodType(int.class,int[][].class,int.class));
+			NEW_MINIMAX = lookup.findConstructor(minimax,
+				MethodType.methodType(void.class,int[][].class,int.class))
+				.asType(MethodType.methodType(Object.class,int[][].class,int.class));
+			CALC_VALUE = lookup.findVirtual(minimax,"calcValue",MethodType.methodType(int.class))
+				.asType(MethodType.methodType(int.class,Object.class));
+			NEW_TABLE = lookup.findConstructor(table,MethodType.methodType(void.class,int.class))
+				.asType(MethodType.methodType(Object.class,int.class));
+			NEW_SEARCH = lookup.findConstructor(minimax,
+				MethodType.methodType(void.class,position,int.class,table))
+				.asType(MethodType.methodType(Object.class,Object.class,int.class,Object.class));
+			SET_THREADS = lookup.findVirtual(minimax,"setThreads",
+				MethodType.methodType(void.class,int.class))
+				.asType(MethodType.methodType(void.class,Object.class,int.class));
+			SET_PRINCIPAL_VARIATION = lookup.findVirtual(minimax,"setPrincipalVariation",
+				MethodType.methodType(void.class,boolean.class))
+				.asType(MethodType.methodType(void.class,Object.class,boolean.class));
+			GET_SCORE = lookup.findVirtual(minimax,"getScore",MethodType.methodType(int.class))
+				.asType(MethodType.methodType(int.class,Object.class));
+			NEW_EVALUATOR = lookup.findConstructor(evaluator,MethodType.methodType(void.class))
+				.asType(MethodType.methodType(Object.class));
+			EVALUATOR_SET = lookup.findVirtual(evaluator,"set",
+				MethodType.methodType(void.class,position))
+				.asType(MethodType.methodType(void.class,Object.class,Object.class));
+			EVALUATOR_PLAY = lookup.findVirtual(evaluator,"play",
+				MethodType.methodType(void.class,int.class,int.class,int.class))
+				.asType(MethodType.methodType(void.class,Object.class,int.class,int.class,int.class));
+			EVALUATOR_UNDO = lookup.findVirtual(evaluator,"undo",
+				MethodType.methodType(void.class,int.class,int.class,int.class))
+				.asType(MethodType.methodType(void.class,Object.class,int.class,int.class,int.class));
+			EVALUATOR_SCORE = lookup.findVirtual(evaluator,"score",
+				MethodType.methodType(int.class,int.class))
+				.asType(MethodType.methodType(int.class,Object.class,int.class));
+		}
+		catch (ReflectiveOperationException e)
+		{
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private Engine()
+	{
+	}
+
+	//Return the position of the named fixed position.
+	static String position(String name)
+	{
+		if (name.equals("opening"))
+		{
+			return OPENING;
+		}
+		else if (name.equals("middlegame"))
+		{
+			return MIDDLEGAME;
+		}
+		else if (name.equals("nearFull"))
+		{
+			return NEAR_FULL;
+		}
+		throw new IllegalArgumentException("unknown position: " + name);
+	}
+
+	//Return the positions of SUITE as Position snapshots.
+	static Object[] suite() throws Throwable
+	{
+		Object[] positions = new Object[SUITE.length];
+		for (int i=0; i<SUITE.length; i++)
+		{
+			positions[i] = (Object)GET_POSITION.invokeExact(model(SUITE[i]));
+		}
+		return positions;
+	}
+
+	//Return a ConnectFourModel with the given columns played.
+	static Object model(String moves) throws Throwable
+	{
+		Object model = (Object)NEW_MODEL.invokeExact();
+		for (int i=0; i<moves.length(); i++)
+		{
+			int row = (int)DROP.invokeExact(model,moves.charAt(i) - '0');
+		}
+		return model;
+	}
+}
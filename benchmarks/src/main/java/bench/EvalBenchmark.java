@@ -0,0 +1,41 @@
+/**
+ * EvalBenchmark.java
+ *
+ * Times a full Minimax.eval() of each fixed position, for each player.
+ *
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EvalBenchmark
+{
+	@Param({"opening", "middlegame", "nearFull"})
+	public String position;
+
+	@Param({"1", "2"})
+	public int player;
+
+	private int[][] grid;
+
+	@Setup
+	public void setup() throws Throwable
+	{
+		grid = (int[][])Engine.GET_GRID.invokeExact(Engine.model(Engine.position(position)));
+	}
+
+	@Benchmark
+	public int eval() throws Throwable
+	{
+		return (int)Engine.EVAL.invokeExact(grid,player);
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * EvaluatorCheck.java
+ *
+ * Checks that Evaluator, kept up to date move by move, scores every grid
+ * as Minimax.eval() scores it from scratch. Plays random games, taking
+ * checkers back at random as the search does, and compares the two for
+ * both players after every drop and undo.
+ *
+ * With the default games it also checks a checksum of all the scores
+ * against the one the original full-grid eval() gave for the same grids,
+ * so a change to the shared pattern tables cannot pass unseen.
+ *
+ * Not a JMH benchmark, but built and shipped with them:
+ *
+ *   java -cp target/benchmarks.jar bench.EvaluatorCheck [games]
+ *  (default 1000; exits with status 1 on any difference)
+ *
+ */
+
+package bench;
+
+import java.util.Random;
+
+public class EvaluatorCheck
+{
+	//The 7*6 grid the games are played on.
+	private static final int WIDTH = 7;
+	private static final int HEIGHT = 6;
+	private static final int GAMES = 1000;
+	private static final long SEED = 0x457661L;
+	//The checksum of the original eval() for the default games.
+	private static final long REFERENCE = 8724766472875318088L;
+
+	public static void main(String[] args) throws Throwable
+	{
+		int games = GAMES;
+		if (args.length > 0)
+		{
+			games = Integer.parseInt(args[0]);
+		}
+		Random random = new Random(SEED);
+		long positions = 0;
+		long differences = 0;
+		long checksum = 0;
+		for (int g=0; g<games; g++)
+		{
+			Object model = (Object)Engine.NEW_MODEL.invokeExact();
+			Object evaluator = (Object)Engine.NEW_EVALUATOR.invokeExact();
+			Engine.EVALUATOR_SET.invokeExact(evaluator,(Object)Engine.GET_POSITION.invokeExact(model));
+			//The col, row and player of each checker, in the order played.
+			int[][] played = new int[WIDTH*HEIGHT][];
+			int count = 0;
+			for (int step=0; step<100; step++)
+			{
+				if (count > 0 && ((boolean)Engine.WIN.invokeExact(model)
+					|| (boolean)Engine.FULL.invokeExact(model) || random.nextInt(4) == 0))
+				{
+					count--;
+					int row = (int)Engine.UNDO.invokeExact(model,played[count][0]);
+					Engine.EVALUATOR_UNDO.invokeExact(evaluator,played[count][0],played[count][1],
+						played[count][2]);
+				}
+				else
+				{
+					int col = random.nextInt(WIDTH);
+					int player = (int)Engine.GET_PLAYER.invokeExact(model);
+					int row = (int)Engine.DROP.invokeExact(model,col);
+					if (row == -1)
+					{
+						continue;
+					}
+					played[count++] = new int[] {col,row,player};
+					Engine.EVALUATOR_PLAY.invokeExact(evaluator,col,row,player);
+				}
+
+				int[][] grid = (int[][])Engine.GET_GRID.invokeExact(model);
+				for (int p=1; p<=2; p++)
+				{
+					int expected = (int)Engine.EVAL.invokeExact(grid,p);
+					int score = (int)Engine.EVALUATOR_SCORE.invokeExact(evaluator,p);
+					if (score != expected)
+					{
+						differences++;
+						if (differences <= 10)
+						{
+							System.out.println("player " + p + ": " + score
+								+ " instead of " + expected + "\n" + model);
+						}
+					}
+					checksum = checksum*31 + expected;
+				}
+				positions++;
+			}
+		}
+
+		System.out.println(positions + " positions, " + differences + " differences");
+		boolean ok = differences == 0;
+		if (games == GAMES)
+		{
+			System.out.println("checksum " + checksum + (checksum == REFERENCE
+				? ", as the original eval()" : ", not " + REFERENCE + " as the original eval()"));
+			ok &= checksum == REFERENCE;
+		}
+		if (!ok)
+		{
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ * ModelBenchmark.java
+ *
+ * Times the ConnectFourModel calls the search and the GUI make most:
+ * drop (with the undo that keeps the position fixed), win, full,
+ * getGrid and getPosition, in each of the fixed positions.
+ *
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ModelBenchmark
+{
+	@Param({"opening", "middlegame", "nearFull"})
+	public String position;
+
+	private Object model;
+	private int col;
+
+	@Setup
+	public void setup() throws Throwable
+	{
+		model = Engine.model(Engine.position(position));
+		//A column with room, so every drop lands.
+		for (col=3; ; col=(col+1)%7)
+		{
+			if ((int)Engine.DROP.invokeExact(model,col) != -1)
+			{
+				int row = (int)Engine.UNDO.invokeExact(model,col);
+				break;
+			}
+		}
+	}
+
+	@Benchmark
+	public int dropUndo() throws Throwable
+	{
+		int row = (int)Engine.DROP.invokeExact(model,col);
+		return row + (int)Engine.UNDO.invokeExact(model,col);
+	}
+
+	@Benchmark
+	public boolean win() throws Throwable
+	{
+		return (boolean)Engine.WIN.invokeExact(model);
+	}
+
+	@Benchmark
+	public boolean full() throws Throwable
+	{
+		return (boolean)Engine.FULL.invokeExact(model);
+	}
+
+	@Benchmark
+	public int[][] getGrid() throws Throwable
+	{
+		return (int[][])Engine.GET_GRID.invokeExact(model);
+	}
+
+	//A snapshot is kept until the next move, so make one after each drop.
+	@Benchmark
+	public Object dropGetPosition() throws Throwable
+	{
+		int row = (int)Engine.DROP.invokeExact(model,col);
+		Object p = (Object)Engine.GET_POSITION.invokeExact(model);
+		row = (int)Engine.UNDO.invokeExact(model,col);
+		return p;
+	}
+}
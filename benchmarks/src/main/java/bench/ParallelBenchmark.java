@@ -0,0 +1,74 @@
+/**
+ * ParallelBenchmark.java
+ *
+ * Times how Minimax scales with the number of search threads: searches
+ * the fixed suite of positions to the given depth with 1, 2, 4 and 8
+ * threads, each position on its own table, so the speedup is the time
+ * with one thread over the time with more. Setup checks that every
+ * thread count picks the same columns as one thread.
+ *
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ParallelBenchmark
+{
+	@Param({"1", "2", "4", "8"})
+	public int threads;
+
+	@Param({"10"})
+	public int depth;
+
+	private Object[] positions;
+	private Object[] tables;
+
+	@Setup
+	public void setup() throws Throwable
+	{
+		positions = Engine.suite();
+		tables = new Object[positions.length];
+		for (int i=0; i<tables.length; i++)
+		{
+			tables[i] = (Object)Engine.NEW_TABLE.invokeExact(20);
+		}
+		for (int i=0; i<positions.length; i++)
+		{
+			int serial = search(i,1);
+			int c = search(i,threads);
+			if (c != serial)
+			{
+				throw new IllegalStateException("position " + Engine.SUITE[i] + ": column " + c
+					+ " with " + threads + " threads, " + serial + " with 1");
+			}
+		}
+	}
+
+	@Benchmark
+	public int search() throws Throwable
+	{
+		int sum = 0;
+		for (int i=0; i<positions.length; i++)
+		{
+			sum += search(i,threads);
+		}
+		return sum;
+	}
+
+	//Search position i with the given number of threads.
+	private int search(int i, int n) throws Throwable
+	{
+		Object comp = (Object)Engine.NEW_SEARCH.invokeExact(positions[i],depth,tables[i]);
+		Engine.SET_THREADS.invokeExact(comp,n);
+		return (int)Engine.CALC_VALUE.invokeExact(comp);
+	}
+}
@@ -0,0 +1,56 @@
+/**
+ * SearchBenchmark.java
+ *
+ * Times Minimax.calcValue() at each difficulty of the GUI (depth 2, 4
+ * and 6) in each fixed position, including making the Minimax, as the
+ * GUI does for every move.
+ *
+ * Minimax solves a grid with no more empty slots than the depth with
+ * Solver instead of searching it, so every position here leaves more
+ * than 6: nearFull leaves 9. Solver has its own timings in Solver.main().
+ *
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark
+{
+	@Param({"opening", "middlegame", "nearFull"})
+	public String position;
+
+	@Param({"2", "4", "6"})
+	public int depth;
+
+	//Slots of the 7*6 grid.
+	private static final int SIZE = 42;
+
+	private int[][] grid;
+
+	@Setup
+	public void setup() throws Throwable
+	{
+		if (SIZE - Engine.position(position).length() <= depth)
+		{
+			throw new IllegalStateException(position + " would be solved, not searched, at depth "
+				+ depth);
+		}
+		grid = (int[][])Engine.GET_GRID.invokeExact(Engine.model(Engine.position(position)));
+	}
+
+	@Benchmark
+	public int calcValue() throws Throwable
+	{
+		Object comp = (Object)Engine.NEW_MINIMAX.invokeExact(grid,depth);
+		return (int)Engine.CALC_VALUE.invokeExact(comp);
+	}
+}
@@ -0,0 +1,75 @@
+/**
+ * WindowBenchmark.java
+ *
+ * Times what principal variation search and aspiration windows save over
+ * plain alpha-beta: searches the fixed suite of positions to each depth
+ * both ways. Setup checks that both ways pick the same column and score
+ * for every position. The share of nodes spent searching again is in
+ * SearchStats and EngineMonitor.
+ *
+ */
+
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WindowBenchmark
+{
+	@Param({"2", "4", "6", "8", "10"})
+	public int depth;
+
+	@Param({"false", "true"})
+	public boolean principalVariation;
+
+	private Object[] positions;
+	private Object table;
+
+	@Setup
+	public void setup() throws Throwable
+	{
+		positions = Engine.suite();
+		table = (Object)Engine.NEW_TABLE.invokeExact(20);
+		for (int i=0; i<positions.length; i++)
+		{
+			Object with = search(i,true);
+			Object without = search(i,false);
+			int col = (int)Engine.CALC_VALUE.invokeExact(with);
+			int plain = (int)Engine.CALC_VALUE.invokeExact(without);
+			int score = (int)Engine.GET_SCORE.invokeExact(with);
+			int plainScore = (int)Engine.GET_SCORE.invokeExact(without);
+			if (col != plain || score != plainScore)
+			{
+				throw new IllegalStateException("position " + Engine.SUITE[i] + ": column " + col
+					+ " score " + score + " with windows, column " + plain
+					+ " score " + plainScore + " without");
+			}
+		}
+	}
+
+	@Benchmark
+	public int search() throws Throwable
+	{
+		int sum = 0;
+		for (int i=0; i<positions.length; i++)
+		{
+			sum += (int)Engine.CALC_VALUE.invokeExact(search(i,principalVariation));
+		}
+		return sum;
+	}
+
+	//Return a Minimax for position i, searching with or without windows.
+	private Object search(int i, boolean windows) throws Throwable
+	{
+		Object comp = (Object)Engine.NEW_SEARCH.invokeExact(positions[i],depth,table);
+		Engine.SET_PRINCIPAL_VARIATION.invokeExact(comp,windows);
+		return comp;
+	}
+}
@@ -0,0 +1,155 @@
+/**
+ * BookBuilder.java
+ *
+ * Writes an opening book for OpeningBook: searches every position with
+ * the computer to move and at most the given number of checkers, and
+ * stores the column Minimax chooses for each.
+ *
+ * Positions from both kinds of game are included: the player moving first,
+ * and the computer moving first. The first moves Minimax.calcValue()
+ * already answers without searching are left out, except from a book
+ * solved to depth Minimax.PERFECT, which plays every move it finds best.
+ * In a solved book, of a position and its mirror image only the one with
+ * the smaller position key is stored, and only the columns up to the
+ * centre are followed from a grid that is its own mirror image. A book
+ * searched less deep stores both, as eval() may tell them apart.
+ *
+ * Usage: java BookBuilder [plies] [depth] [file]
+ *  (defaults 6, 6 and book.bin; the book only answers the difficulty
+ *  searched to that depth, 6 being HARD)
+ *
+ */
+
+import java.io.IOException;
+import java.util.*;
+
+public class BookBuilder
+{
+	private final int plies;
+	private final int depth;
+	private final TranspositionTable table = new TranspositionTable(20);
+	//Best column and score of each position, by its position key or, in a
+	// solved book, by the smaller of its and its mirror image's, for the
+	// position with that key.
+	private final TreeMap<Long,long[]> found = new TreeMap<Long,long[]>();
+
+	public BookBuilder(int plies, int depth)
+	{
+		this.plies = plies;
+		this.depth = depth;
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		int plies = 6;
+		int depth = 6;
+		String path = "book.bin";
+		if (args.length > 0)
+		{
+			plies = Integer.parseInt(args[0]);
+		}
+		if (args.length > 1)
+		{
+			depth = Integer.parseInt(args[1]);
+		}
+		if (args.length > 2)
+		{
+			path = args[2];
+		}
+
+		BookBuilder builder = new BookBuilder(plies,depth);
+		long start = System.currentTimeMillis();
+		ConnectFourModel model = new ConnectFourModel();
+		builder.visit(model,0);
+		model.setPlayer(2);
+		builder.visit(model,0);
+		builder.write(path);
+		System.out.println(builder.found.size() + " positions to depth " + depth
+			+ " in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	//Search model if the computer is to move, then every position
+	// reachable from it with at most plies checkers.
+	private void visit(ConnectFourModel model, int discs)
+	{
+		if (model.win())
+		{
+			return;
+		}
+		boolean solved = depth >= Minimax.PERFECT;
+		long key = model.getPositionKey();
+		long mirror = solved ? model.getMirrorPositionKey() : key;
+		if (model.getPlayer() == 2 && !found.containsKey(Math.min(key,mirror)))
+		{
+			int[][] grid = model.getGrid();
+			if (playerDiscs(grid) >= 2 || solved)
+			{
+				//Search the one of the pair that is stored.
+				if (mirror < key)
+				{
+					grid = mirror(grid);
+				}
+				Minimax comp = new Minimax(grid,depth,table);
+				found.put(Math.min(key,mirror),new long[] {comp.calcValue(),comp.getScore()});
+			}
+		}
+		if (discs == plies)
+		{
+			return;
+		}
+		int cols = solved && model.isSymmetric() ? 4 : 7;
+		for (int col=0; col<cols; col++)
+		{
+			if (model.drop(col) != -1)
+			{
+				visit(model,discs+1);
+				model.undo(col);
+			}
+		}
+	}
+
+	private void write(String path) throws IOException
+	{
+		long[] keys = new long[found.size()];
+		int[] moves = new int[keys.length];
+		int[] scores = new int[keys.length];
+		int i = 0;
+		for (Map.Entry<Long,long[]> e : found.entrySet())
+		{
+			keys[i] = e.getKey();
+			moves[i] = (int)e.getValue()[0];
+			scores[i] = (int)e.getValue()[1];
+			i++;
+		}
+		OpeningBook.write(path,depth,keys,moves,scores);
+	}
+
+	//Return the grid flipped left to right.
+	private static int[][] mirror(int[][] grid)
+	{
+		int[][] flipped = new int[grid.length][];
+		for (int col=0; col<grid.length; col++)
+		{
+			flipped[col] = grid[grid.length-1-col].clone();
+		}
+		return flipped;
+	}
+
+	//Count the player's checkers, as Minimax.calcValue() does to pick
+	// its first moves.
+	private static int playerDiscs(int[][] grid)
+	{
+		int count = 0;
+		for (int col=0; col<7; col++)
+		{
+			for (int row=0; row<6; row++)
+			{
+				if (grid[col][row] == 1)
+				{
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+}
@@ -19,13 +19,20 @@ public class C4A extends JApplet// implements KeyListener
 		private ConnectFourModel cfm = new ConnectFourModel();
 		private ConnectFourGUI gui = new ConnectFourGUI(cfm,initr,initc);
 
+		//Searches for the computer's moves off the event thread.
+		private EngineService engine = new EngineService();
+		//Counts computer moves asked for; answers to older requests are dropped.
+		private int moveId = 0;
+
 
 		//New game difficulty dialog box
 		final JOptionPane newGame = new JOptionPane();
 		Object[] options = {"EASY",
-                    "INTERMEDIATE", "HARD"};
-		//Difficulty (2 is easy, 4 is med, 6 is hard)
+                    "INTERMEDIATE", "HARD", "UNBEATABLE"};
+		//Difficulty (2 is easy, 4 is med, 6 is hard, Minimax.PERFECT is unbeatable)
 		private int diff = 0;
+		//Difficulty of the game being played.
+		private int gameDiff = 4;
 		private String showDiff = "";
 
     /**
@@ -87,6 +94,7 @@ public class C4A extends JApplet// implements KeyListener
 			newDiff.setFocusable(true);
 			newDiff.addKeyListener(new keyPress());
 
+			loadBook();
 
    			setContentPane(content);
    			//setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -94,8 +102,38 @@ public class C4A extends JApplet// implements KeyListener
    			//setResizable(false);
     	}
 
+		//Use the opening book in book.bin and the endgame database in
+		// endgame.bin, if there are such files and the applet may read
+		// them; without them the positions are searched.
+		private void loadBook()
+		{
+			try
+			{
+				engine.setBook(OpeningBook.open("book.bin"));
+			}
+			catch (java.io.IOException e)
+			{
+			}
+			catch (SecurityException e)
+			{
+			}
+			try
+			{
+				engine.setEndgame(EndgameDatabase.open("endgame.bin"));
+			}
+			catch (java.io.IOException e)
+			{
+			}
+			catch (SecurityException e)
+			{
+			}
+		}
+
 		private void reset()
 		{
+				//Forget any search for the old game.
+				engine.cancel();
+				moveId++;
 				cfm.reset();
     			//If no difficulty has been set, choose difficulty.
     			if (diff==0)
@@ -103,7 +141,7 @@ public class C4A extends JApplet// implements KeyListener
     				chooseDiff();
     			}
     			//Sets difficulty to given one.
-    			gui.setDiff(diff);
+    			gameDiff = diff;
     			//Set displayed difficulty.
     			if (diff == 2)
     			{
@@ -117,7 +155,68 @@ public class C4A extends JApplet// implements KeyListener
     			{
     			showDiff = ("Current difficulty: HARD");
     			}
+    			else if (diff == Minimax.PERFECT)
+    			{
+    			showDiff = ("Current difficulty: UNBEATABLE");
+    			}
     			gui.repaint();
+    			//Computer moves first every other game.
+    			if (cfm.getPlayer() == 2)
+    			{
+    				computerMove();
+    			}
+    			else
+    			{
+    				ponder();
+    			}
+		}
+
+		//While the player thinks, let the engine search its replies to each
+		// move, starting with the column the chip is over.
+		private void ponder()
+		{
+			if (cfm.getPlayer() == 1 && !cfm.win() && !cfm.full())
+			{
+				engine.ponder(cfm.getPosition(),gameDiff,gui.chipCol());
+			}
+		}
+
+		//Ask the engine for the computer's move and play it when it comes.
+		// The GUI shows the depth searched so far in the meantime.
+		private void computerMove()
+		{
+			final int id = ++moveId;
+			gui.setDepth(0);
+			engine.requestMove(cfm.getPosition(),gameDiff,new EngineService.Listener()
+			{
+				public void depthReached(final int depth)
+				{
+					SwingUtilities.invokeLater(new Runnable()
+					{
+						public void run()
+						{
+							if (id == moveId)
+							{
+								gui.setDepth(depth);
+							}
+						}
+					});
+				}
+				public void moveChosen(final int col)
+				{
+					SwingUtilities.invokeLater(new Runnable()
+					{
+						public void run()
+						{
+							if (id == moveId)
+							{
+								gui.dropped(col,cfm.drop(col));
+								ponder();
+							}
+						}
+					});
+				}
+			});
 		}
 
     	class resetListener implements ActionListener
@@ -146,7 +245,7 @@ public class C4A extends JApplet// implements KeyListener
     			if (diff==0)
     			{
     				chooseDiff();
-    				gui.setDiff(diff);
+    				gameDiff = diff;
     			}
     			moveLeft();
     		}
@@ -155,31 +254,39 @@ public class C4A extends JApplet// implements KeyListener
     	private void moveLeft()
     	{
     		int col = gui.chipCol();
-    			if (col <= 6 && col >0)
+    			if (col < cfm.getWidth() && col >0)
     			{
     				gui.setCol(col-1);
-    				gui.repaint();
+    				ponder();
     			}
     	}
 
 		private void moveRight()
     	{
     			int col = gui.chipCol();
-    			if (col < 6 && col >=0)
+    			if (col < cfm.getWidth()-1 && col >=0)
     			{
     				gui.setCol(col+1);
-    				gui.repaint();
+    				ponder();
     			}
     	}
 
     	private void moveDown()
     	{
     		int col = gui.chipCol();
+    			//Wait while the computer is thinking.
+    			if (cfm.getPlayer() != 1)
+    			{
+    				return;
+    			}
     			int dropRow = cfm.drop(col);
     			if (dropRow != -1)
     			{
-    				gui.setCol(col);
-    				gui.repaint();
+    				gui.dropped(col,dropRow);
+    				if (!cfm.win() && !cfm.full())
+    				{
+    					computerMove();
+    				}
     			}
     	}
 
@@ -212,6 +319,11 @@ public class C4A extends JApplet// implements KeyListener
     			diff = 6;
     			showDiff = ("Current difficulty: HARD");
     			}
+    			else if (i == 3)
+    			{
+    			diff = Minimax.PERFECT;
+    			showDiff = ("Current difficulty: UNBEATABLE");
+    			}
     			//Make sure a difficulty is chosen.
     			else if (showDiff=="")
     			{newGame.showMessageDialog(null,
@@ -254,6 +366,13 @@ public class C4A extends JApplet// implements KeyListener
  						   "Difficulty will be changed to HARD upon new game.",
   						   "HARD",JOptionPane.WARNING_MESSAGE);
     		}
+    		else if (i == 3)
+    		{
+    			diff = Minimax.PERFECT;
+    			newGame.showMessageDialog(null,
+ 						   "Difficulty will be changed to UNBEATABLE upon new game.",
+  						   "UNBEATABLE",JOptionPane.WARNING_MESSAGE);
+    		}
     		}
     	}
 
@@ -266,7 +385,7 @@ public class C4A extends JApplet// implements KeyListener
     			if (diff==0)
     			{
     				chooseDiff();
-    				gui.setDiff(diff);
+    				gameDiff = diff;
     			}
 
     			moveRight();
@@ -283,7 +402,7 @@ public class C4A extends JApplet// implements KeyListener
     			if (diff==0)
     			{
     				chooseDiff();
-    				gui.setDiff(diff);
+    				gameDiff = diff;
     			}
     			moveDown();
     		}
@@ -300,7 +419,7 @@ public class C4A extends JApplet// implements KeyListener
     			if (diff==0)
     			{
     				chooseDiff();
-    				gui.setDiff(diff);
+    				gameDiff = diff;
     			}
     			// if left is pressed:
     			if (keyCode == 37)
@@ -3,53 +3,142 @@
  *
  * Draws the Connect Four board using Connect Four Model
  *
+ * The empty board and the two colours of chip are drawn once into images
+ * made for the screen, which Java2D keeps in video memory where it can;
+ * a paint only copies them. Moving the chip, a new search depth and a
+ * falling chip repaint just the part of the board they change.
+ *
  */
 
 import java.awt.*;
+import java.awt.event.*;
+import java.awt.image.BufferedImage;
 import javax.swing.JComponent;
+import javax.swing.Timer;
 
 public class ConnectFourGUI extends JComponent
 {
 	private static final int cellPxl = 50;
-	private static final int numCol = 7;
-	private static final int numRow = 6;
+	//Milliseconds between frames of a falling chip, and how much faster
+	// it falls each frame, in pixels.
+	private static final int FRAME = 15;
+	private static final int GRAVITY = 4;
+	private final int numCol;
+	private final int numRow;
 	private int colChip;
 	private int rowChip;
-	private int diff;
+	private int depth;
 
 	private ConnectFourModel model;
 
+	//The empty board and the chips, made on first paint.
+	private Image board;
+	private Image redChip;
+	private Image blackChip;
+
+	//The falling chip: its column and row, its top edge and speed in
+	// pixels. animCol is -1 when no chip is falling.
+	private final Timer timer;
+	private int animCol = -1;
+	private int animRow;
+	private int animY;
+	private int animSpeed;
+
 	public ConnectFourGUI(ConnectFourModel cfm,int col, int row)
 	{
-		setPreferredSize(new Dimension(cellPxl*7+10,cellPxl*7+10));
+		numCol = cfm.getWidth();
+		numRow = cfm.getHeight();
+		setPreferredSize(new Dimension(cellPxl*numCol+10,cellPxl*(numRow+1)+10));
 		setBackground(Color.white);
 		model = cfm;
 		colChip = col;
 		rowChip = row;
-		diff = 4;
+		depth = 0;
+		timer = new Timer(FRAME,new ActionListener()
+		{
+			public void actionPerformed(ActionEvent ae)
+			{
+				fall();
+			}
+		});
 
 	}
 
 	public void paintComponent(Graphics g)
 	{
+		if (board == null)
+		{
+			makeImages();
+		}
+		g.drawImage(board,0,0,null);
+		drawChip(g,colChip,rowChip);
+
+	}
+
+	//Draw the empty board and the two chips into images like the screen's.
+	private void makeImages()
+	{
+		int w = cellPxl*numCol+10;
+		int h = cellPxl*(numRow+1)+10;
+		GraphicsConfiguration gc = getGraphicsConfiguration();
+		BufferedImage b;
+		BufferedImage red;
+		BufferedImage black;
+		if (gc != null)
+		{
+			b = gc.createCompatibleImage(w,h);
+			red = gc.createCompatibleImage(cellPxl,cellPxl,Transparency.BITMASK);
+			black = gc.createCompatibleImage(cellPxl,cellPxl,Transparency.BITMASK);
+		}
+		else
+		{
+			b = new BufferedImage(w,h,BufferedImage.TYPE_INT_RGB);
+			red = new BufferedImage(cellPxl,cellPxl,BufferedImage.TYPE_INT_ARGB);
+			black = new BufferedImage(cellPxl,cellPxl,BufferedImage.TYPE_INT_ARGB);
+		}
+
+		Graphics g = b.getGraphics();
 		g.setColor(getBackground());
-		g.fillRect(0,0,cellPxl*numCol+10,cellPxl*(numRow+1)+10);
+		g.fillRect(0,0,w,h);
 		drawBoard(g);
-		drawChip(g,colChip,rowChip);
+		g.dispose();
 
+		g = red.getGraphics();
+		g.setColor(Color.red);
+		g.fillOval(0,0,cellPxl,cellPxl);
+		g.dispose();
+
+		g = black.getGraphics();
+		g.setColor(Color.black);
+		g.fillOval(0,0,cellPxl,cellPxl);
+		g.dispose();
+
+		board = b;
+		redChip = red;
+		blackChip = black;
 	}
 
 	// Draw a chip red or black depending on who is playing.
+	// The computer's moves are made by C4A; this only draws the model.
+	// Only chips inside the area being repainted are drawn.
 	public void drawChip(Graphics g, int col, int row)
 	{
 
 		int x = cellPxl;
 		int y = cellPxl;
+		//The whole paint draws one snapshot of the model.
+		Position p = model.getPosition();
+		Rectangle clip = g.getClipBounds();
+		if (board == null)
+		{
+			makeImages();
+		}
 
+		g.setColor(Color.black);
 		//Check for player win.
-		if (model.win())
+		if (p.win())
 		{
-			if(model.getPlayer()==2)
+			if(p.getPlayer()==2)
 			{
 				g.drawString("You Win! Click 'Start new game'  to play again!",25,25);
 			}
@@ -62,82 +151,65 @@ public class ConnectFourGUI extends JComponent
 
 		}
 		//Check if draw.
-		if (model.full())
+		else if (p.full())
 		{
 			g.drawString("Draw! Click 'Start new game' to play again!",25,25);
 			col = -5;
 		}
 
-		//If player's turn, draws a chip to be dropped in.
-		if (model.getPlayer()==1)
+		//If computer's turn, show how far it has searched.
+		else if (p.getPlayer()==2)
 		{
-			g.setColor(Color.red);
-			g.fillOval(5+x*col,y+y*row,cellPxl,cellPxl);
-		}
-		//If computer's turn, fills in computer's chip in the model
-		// and draws player's chip to be dropped in if computer has not won.
-		else
-		{
-		/*	//Computer generates random number;
-			rand comp = new rand();
-			int c = comp.random();
-			int a = model.drop(c);
-			g.setColor(Color.red);
-			g.fillOval(5+x*col,y+y*row,cellPxl,cellPxl);*/
-
-			//Computer generates Minimax value;
-			Minimax comp = new Minimax(model.getGrid(),diff);
-			int c = comp.calcValue();
-			int a = model.drop(c);
-
-			//Check for computer win.
-			if (model.win())
-			{
-				if(model.getPlayer()==1)
-				{
-					g.drawString("You Lose! Click 'Start new game' to play again!",25,25);
-				}
-				//Draws the new chip in a not visible area.
-				col = -5;
-			}
-			else
-			{
-			g.setColor(Color.red);
-			g.fillOval(5+x*col,y+y*row,cellPxl,cellPxl);
-			}
+			g.drawString("Thinking... depth " + depth,25,25);
 		}
 
+		//Draws player's chip to be dropped in.
+		g.drawImage(redChip,5+x*col,y+y*row,null);
+
 
-		//Draws the chips already filled in.
-		for (int r =5; r>=0; r--)
+		//Draws the chips already filled in; the falling one is drawn
+		// where it has fallen to so far.
+		for (int r =numRow-1; r>=0; r--)
     	{
-    		for (int c=0; c<7; c++)
+    		for (int c=0; c<numCol; c++)
     		{
-    			if (model.getBoardSlot(c,r) == 1)
+    			if ((c == animCol && r == animRow)
+    				|| (clip != null && !clip.intersects(5+x*c,y+y*r,cellPxl,cellPxl)))
     			{
-    				g.setColor(Color.red);
-					g.fillOval(5+x*c,y+y*r,cellPxl,cellPxl);
+    				continue;
     			}
-    			else if (model.getBoardSlot(c,r) == 2)
+    			int slot = p.getBoardSlot(c,r);
+    			if (slot == 1)
     			{
-    				g.setColor(Color.black);
-					g.fillOval(5+x*c,y+y*r,cellPxl,cellPxl);
+					g.drawImage(redChip,5+x*c,y+y*r,null);
+    			}
+    			else if (slot == 2)
+    			{
+					g.drawImage(blackChip,5+x*c,y+y*r,null);
     			}
     		}
     	}
+		if (animCol != -1)
+		{
+			Image chip = p.getBoardSlot(animCol,animRow) == 1 ? redChip : blackChip;
+			g.drawImage(chip,5+x*animCol,animY,null);
+		}
 
 	}
 
-	// Set difficulty.
-	public void setDiff(int d)
+	// Set the depth the computer's search has reached.
+	public void setDepth(int d)
 	{
-		diff = d;
+		depth = d;
+		repaintStatus();
 	}
 
 	//Set the current column position of the chip.
 	public void setCol(int col)
 	{
+		repaintCell(colChip,rowChip);
 		colChip = col;
+		repaintCell(colChip,rowChip);
 	}
 
 	//Returns the current column position of the chip.
@@ -146,25 +218,85 @@ public class ConnectFourGUI extends JComponent
 		return colChip;
 	}
 
+	//Show the chip just dropped into (col,row) of the model falling
+	// there from above the board. A chip still falling lands at once.
+	// The falling runs on a timer, so input is never held up.
+	public void dropped(int col, int row)
+	{
+		if (animCol != -1)
+		{
+			land();
+		}
+		animCol = col;
+		animRow = row;
+		animY = cellPxl + cellPxl*rowChip;
+		animSpeed = 0;
+		repaintStatus();
+		timer.start();
+	}
+
+	//Move the falling chip one frame down, repainting only the cells it
+	// has left and entered.
+	private void fall()
+	{
+		//The game was started again under the chip.
+		if (animCol == -1 || model.getPosition().getBoardSlot(animCol,animRow) == 0)
+		{
+			land();
+			return;
+		}
+		int target = cellPxl + cellPxl*animRow;
+		int from = animY;
+		animSpeed += GRAVITY;
+		animY = Math.min(animY + animSpeed,target);
+		repaint(5+cellPxl*animCol,from,cellPxl,animY - from + cellPxl);
+		if (animY == target)
+		{
+			land();
+		}
+	}
+
+	//Stop the falling chip where it belongs.
+	private void land()
+	{
+		timer.stop();
+		if (animCol != -1)
+		{
+			repaint(5+cellPxl*animCol,0,cellPxl,cellPxl*(numRow+1));
+			animCol = -1;
+		}
+	}
+
+	private void repaintCell(int col, int row)
+	{
+		repaint(5+cellPxl*col,cellPxl+cellPxl*row,cellPxl,cellPxl);
+	}
+
+	//Repaint the line of text above the board.
+	private void repaintStatus()
+	{
+		repaint(0,0,cellPxl*numCol+10,cellPxl);
+	}
+
 	public void drawBoard(Graphics g)
 	{
 		int x = cellPxl;
 		int y = cellPxl;
 		int r,c;
-		//Draw a 7*6 grid
+		//Draw a numCol*numRow grid
 		g.setColor(Color.black);
-		g.drawRect(5,y,x*7,y*6);
+		g.drawRect(5,y,x*numCol,y*numRow);
 
-		for (r=0;r<6;r++)
+		for (r=0;r<numRow;r++)
 		{
-			g.drawLine(5,y+y*r,x*7+5,y+y*r);
+			g.drawLine(5,y+y*r,x*numCol+5,y+y*r);
 		}
-		for (c=0;c<7;c++)
+		for (c=0;c<numCol;c++)
 		{
-			g.drawLine(x+5+x*c,y,x+5+x*c,y*7);
+			g.drawLine(x+5+x*c,y,x+5+x*c,y*(numRow+1));
 		}
 
 	}
 
 
-}
\ No newline at end of file
+}
@@ -6,56 +6,221 @@
  * It allows two players to drop checkers into a grid.
  * The winning player is the first one to have 4 checkers in a row.
  *
+ * The grid is 7 columns by 6 rows with 4 in a row to win, unless other
+ * dimensions and another number in a row are given.
+ *
+ * The grid is kept as bitboards: one 64-bit word per player and one word
+ * marking every filled slot. Each column takes height+1 bits, bottom row
+ * first, with the top bit left empty so that shifts never wrap between
+ * columns. On the 7*6 grid:
+ *
+ *   6 13 20 27 34 41 48
+ *   5 12 19 26 33 40 47   <- row 0
+ *   4 11 18 25 32 39 46
+ *   3 10 17 24 31 38 45
+ *   2  9 16 23 30 37 44
+ *   1  8 15 22 29 36 43
+ *   0  7 14 21 28 35 42   <- row 5
+ *
+ * A grid too big for one word (more than 64 bits) keeps one word per
+ * column instead, bottom row in bit 0, and looks along lines slot by slot.
+ *
+ * For a search to see forced moves without playing them, the model can
+ * tell which columns win at once and which do not let the other player
+ * win at once. With a single word every slot that would complete a line
+ * is found at once, by ANDing the player's word shifted along each line.
+ *
+ * A model is meant for one thread at a time. getPosition() returns an
+ * unchangeable copy of it, for other threads to read.
  *
  */
 
 
 public class ConnectFourModel
 {
-	private int[][] grid;
+	//The standard grid.
+	public static final int WIDTH = 7;
+	public static final int HEIGHT = 6;
+	public static final int CONNECT = 4;
+
+	//Random numbers for each (player, slot), slot numbered as on the
+	// bitboard. The key of a grid is the XOR of the numbers of its filled
+	// slots, plus side when player 2 is to move. The top bit of column 0
+	// is never a slot, so its number serves as side.
+	private static final long[][] STANDARD_ZOBRIST = zobristTable(WIDTH,HEIGHT);
+
+	private final int width;
+	private final int height;
+	private final int connect;
+	private final int h1;
+	private final long[][] zobrist;
+	private final long side;
+
+	//Bottom slot of every column, and every playable slot of the board.
+	// Only used with a single word.
+	private final long bottom;
+	private final long board;
+
+	private long disc1;
+	private long disc2;
+	private long mask;
+	//One word per column when the grid does not fit in one word, else null.
+	private final long[] cols1;
+	private final long[] cols2;
+	private final long[] colsMask;
+	private int filled;
+
+	private long key;
+	//The key the grid's mirror image would have, kept up the same way.
+	private long mirrorKey;
+	//Set once a player has 4 in a row; kept up to date by every move.
+	private boolean won;
 	private int player;
 	public int order;
-	
+	//The last getPosition(), until the grid or the player changes.
+	private Position position;
+
 	//Create and initialize the game grid with 7 cols and 6 rows.
 	// Let player 1 be the first to start.
     public ConnectFourModel()
     {
-    	grid = new int[7][6];
-    	for (int row =0; row<6; row++)
-    	{
-    		for (int col=0; col<7; col++)
-    		{
-    			grid[col][row]=0;
-    		}
-    	}
-    	player = 1;
-    	order = player;
+    	this(WIDTH,HEIGHT,CONNECT);
     }
 
+	//Same, with the given number of cols and rows and of checkers
+	// in a row to win.
+	public ConnectFourModel(int cols, int rows, int inRow)
+	{
+		width = cols;
+		height = rows;
+		connect = inRow;
+		h1 = height + 1;
+		if (width == WIDTH && height == HEIGHT)
+		{
+			zobrist = STANDARD_ZOBRIST;
+		}
+		else
+		{
+			zobrist = zobristTable(width,height);
+		}
+		side = zobrist[0][height];
+		if (width*h1 <= 64)
+		{
+			long b = 0;
+			for (int col=0; col<width; col++)
+			{
+				b |= 1L << (col*h1);
+			}
+			bottom = b;
+			board = b * ((1L << height) - 1);
+			cols1 = null;
+			cols2 = null;
+			colsMask = null;
+		}
+		else
+		{
+			bottom = 0;
+			board = 0;
+			cols1 = new long[width];
+			cols2 = new long[width];
+			colsMask = new long[width];
+		}
+		disc1 = 0;
+		disc2 = 0;
+		mask = 0;
+		filled = 0;
+		key = 0;
+		mirrorKey = 0;
+		won = false;
+		player = 1;
+		order = player;
+	}
+
+	//Create a game grid holding the given position.
+	public ConnectFourModel(Position p)
+	{
+		this(p.getWidth(),p.getHeight(),p.getConnect());
+		setPosition(p);
+	}
+
+	//Return the number of cols, rows and checkers in a row to win.
+	public int getWidth()
+	{
+		return width;
+	}
+
+	public int getHeight()
+	{
+		return height;
+	}
+
+	public int getConnect()
+	{
+		return connect;
+	}
+
+	//Return the grid and player to move as they are now, as a Position.
+	// The same Position is returned until the next change, so asking for
+	// it once per move or per paint costs nothing more.
+	public Position getPosition()
+	{
+		if (position == null)
+		{
+			position = new Position(width,height,connect,player,filled,key,mirrorKey,
+				getPositionKey(),getMirrorPositionKey(),won,
+				disc1,disc2,cols1 == null ? null : cols1.clone(),cols2 == null ? null : cols2.clone());
+		}
+		return position;
+	}
+
+	//Replace the game grid and player to move with the given position,
+	// which must have the same size of grid. Nothing is recomputed.
+	public void setPosition(Position p)
+	{
+		if (p.getWidth() != width || p.getHeight() != height || p.getConnect() != connect)
+		{
+			throw new IllegalArgumentException("position is for another grid");
+		}
+		disc1 = p.disc1;
+		disc2 = p.disc2;
+		mask = disc1 | disc2;
+		if (cols1 != null)
+		{
+			for (int col=0; col<width; col++)
+			{
+				cols1[col] = p.cols1[col];
+				cols2[col] = p.cols2[col];
+				colsMask[col] = cols1[col] | cols2[col];
+			}
+		}
+		filled = p.getMoves();
+		key = p.getKey();
+		mirrorKey = p.getMirrorKey();
+		won = p.win();
+		player = p.getPlayer();
+		position = p;
+	}
+
 	//Reset the game board to its initial state.
 	public void reset()
 	{
-    	grid = new int[7][6];
-    	for (int row =0; row<6; row++)
-    	{
-    		for (int col=0; col<7; col++)
-    		{
-    			grid[col][row]=0;
-    		}
-    	}
-    	player = 3 - order;
-    	order = player;
-    }
+		clear();
+		won = false;
+		player = 3 - order;
+		order = player;
+		key = player == 2 ? side : 0;
+		mirrorKey = key;
+	}
 
     //Returns a copy of the game grid.
     public int[][] getGrid()
     {
-    	int[][] getGrid = new int[7][6];
-    	for (int row =0; row<6; row++)
+    	int[][] getGrid = new int[width][height];
+    	for (int row =0; row<height; row++)
     	{
-    		for (int col=0; col<7; col++)
+    		for (int col=0; col<width; col++)
     		{
-    			getGrid[col][row]=grid[col][row];
+    			getGrid[col][row]=getBoardSlot(col,row);
     		}
     	}
     	return getGrid;
@@ -64,26 +229,38 @@ public class ConnectFourModel
 	//Copy the given game grid to replace existing game grid.
     public void setGrid(int[][] newGrid,int p)
     {
-    	grid = new int[7][6];
-    	for (int row =0; row<6; row++)
+    	clear();
+    	key = 0;
+    	mirrorKey = 0;
+    	for (int row =0; row<height; row++)
     	{
-    		for (int col=0; col<7; col++)
+    		for (int col=0; col<width; col++)
     		{
-    			grid[col][row]=newGrid[col][row];
+    			if (newGrid[col][row] != 0)
+    			{
+    				player = newGrid[col][row];
+    				place(col,height - 1 - row);
+    			}
     		}
     	}
+    	won = aligned(1) || aligned(2);
     	player = p;
+    	if (player == 2)
+    	{
+    		key ^= side;
+    		mirrorKey ^= side;
+    	}
     }
 
     //Display string representation of game grid.
     public String toString()
     {
     	String gridString = "";
-    	for (int row =5; row>=0; row--)
+    	for (int row =height-1; row>=0; row--)
     	{
-    		for (int col=0; col<7; col++)
+    		for (int col=0; col<width; col++)
     		{
-    			gridString = gridString + grid[col][row];
+    			gridString = gridString + getBoardSlot(col,row);
     		}
     		gridString = gridString + "\n";
     	}
@@ -99,17 +276,107 @@ public class ConnectFourModel
 	//Sets player as given player.
 	public void setPlayer(int newPlayer)
     {
+    	if (newPlayer != player)
+    	{
+    		key ^= side;
+    		mirrorKey ^= side;
+    		position = null;
+    	}
     	player = newPlayer;
     }
 
+	// Return the hash key of the grid and the player to move.
+	// It is updated with every drop and undo, never rebuilt from the grid.
+	public long getKey()
+	{
+		return key;
+	}
+
+	// Return the hash key the grid's mirror image (col c swapped with col
+	// width-1-c) would have, with the same player to move.
+	public long getMirrorKey()
+	{
+		return mirrorKey;
+	}
+
+	// Return the same key for the grid and its mirror image: the smaller
+	// of getKey() and getMirrorKey().
+	public long getCanonicalKey()
+	{
+		return Math.min(key,mirrorKey);
+	}
+
+	// Return the position key of the grid's mirror image.
+	public long getMirrorPositionKey()
+	{
+		if (cols1 != null)
+		{
+			return player == 2 ? mirrorKey ^ side : mirrorKey;
+		}
+		//Each column's bits of the position key lie within the column.
+		long k = getPositionKey();
+		long mirror = 0;
+		long chunk = (1L << h1) - 1;
+		for (int col=0; col<width; col++)
+		{
+			mirror |= ((k >>> (col*h1)) & chunk) << ((width-1-col)*h1);
+		}
+		return mirror;
+	}
+
+	// Return true if the grid is its own mirror image.
+	public boolean isSymmetric()
+	{
+		if (cols1 != null)
+		{
+			for (int col=0; col<width/2; col++)
+			{
+				if (cols1[col] != cols1[width-1-col] || cols2[col] != cols2[width-1-col])
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+		return getPositionKey() == getMirrorPositionKey();
+	}
+
+	// Return a key that is different for every grid, unlike getKey():
+	// player 1's checkers plus a marker bit above the top checker of each
+	// column. It fits in 49 bits and ignores the player to move.
+	// A grid too big for one word has no such key; its hash key without
+	// the player to move is returned instead.
+	public long getPositionKey()
+	{
+		if (cols1 != null)
+		{
+			return player == 2 ? key ^ side : key;
+		}
+		return disc1 + mask + bottom;
+	}
+
 	// Return if a slot on the board is empty, filled by Player, or filled by Computer.
 	public int getBoardSlot(int col, int row)
 	{
-		if (grid[col][row] == 1)
+		if (cols1 != null)
+		{
+			long bit = 1L << (height - 1 - row);
+			if ((cols1[col] & bit) != 0)
+			{
+				return 1;
+			}
+			else if ((cols2[col] & bit) != 0)
+			{
+				return 2;
+			}
+			return 0;
+		}
+		long bit = 1L << (col*h1 + height - 1 - row);
+		if ((disc1 & bit) != 0)
 		{
 			return 1;
 		}
-		else if (grid[col][row] == 2)
+		else if ((disc2 & bit) != 0)
 		{
 			return 2;
 		}
@@ -119,9 +386,10 @@ public class ConnectFourModel
 	// Fill an empty slot on the board
 	public void setBoardSlot(int col, int row)
 	{
-		if (grid[col][row] == 0)
+		if (getBoardSlot(col,row) == 0)
 		{
-			grid[col][row] = player;
+			place(col,height - 1 - row);
+			won = aligned(1) || aligned(2);
 		}
 	}
 
@@ -135,108 +403,462 @@ public class ConnectFourModel
     	{
     		return -1;
     	}
-    	//Check col
-		int row = 5;
-    	for (; row>=0 && grid[col][row] != 0; row--)
-    	{}
- 		// If the row is -1, then the col is already full.
-    	if (row==-1)
+    	int r;
+    	if (cols1 != null)
     	{
-    		return -1;
+    		r = Long.numberOfTrailingZeros(colsMask[col] + 1);
+    		if (r >= height)
+    		{
+    			return -1;
+    		}
+    		place(col,r);
+    		key ^= side;
+    		mirrorKey ^= side;
+    		won = alignedAt(col,r);
     	}
-    	// Fill the row of the given col with player's checker.
     	else
     	{
-    		grid[col][row] = player;
-    		//Alternate turns.
-    		if (player == 1)
-    		{
-    			player = 2;
-    		}
-    		else
-    		{
-    			player = 1;
-    		}
-    		return row;
+	    	//The lowest empty slot of the column is the first bit that
+	    	// does not carry when the bottom bit is added to the column.
+	    	long column = ((1L << height) - 1) << (col*h1);
+	    	long move = (mask + (1L << (col*h1))) & ~mask & column;
+	 		// If there is no such slot, then the col is already full.
+	    	if (move == 0)
+	    	{
+	    		return -1;
+	    	}
+	    	// Fill the row of the given col with player's checker.
+	    	r = Long.numberOfTrailingZeros(move) - col*h1;
+	    	place(move,col,r);
+	    	key ^= side;
+	    	mirrorKey ^= side;
+	    	//Only lines through the new checker can have become 4 in a row.
+	    	if (player == 1)
+	    	{
+	    		won = alignedAt(disc1,move);
+	    	}
+	    	else
+	    	{
+	    		won = alignedAt(disc2,move);
+	    	}
     	}
-
-    }
-    // Determine if game board is full.
-    public boolean full()
-    {
-    	boolean boardFull = true;
-    	for (int row =5; row>=0; row--)
+    	//Alternate turns.
+    	if (player == 1)
     	{
-    		for (int col=0; col<7; col++)
-    		{
-    			if (grid[col][row] == 0)
-    			{
-    				boardFull = false;
-    			}
-    		}
+    		player = 2;
+    	}
+    	else
+    	{
+    		player = 1;
     	}
-    	return boardFull;
+    	return height - 1 - r;
+
     }
-    // Return true if a player has won.
-    public boolean win()
+    //Take back the top checker of a column, which must have been dropped
+    // by the other player, and give the turn back to that player.
+    // Returns the row it was taken from, or -1 if col is empty.
+    public int undo(int col)
     {
-    	boolean win = false;
-    	//Check for horizontal win
-    	for (int row=0;row<6;row++)
+    	int r;
+    	if (cols1 != null)
     	{
-    		for (int col = 0;col<4;col++)
+    		if (colsMask[col] == 0)
     		{
-    			if (grid[col][row] != 0 &&
-    				grid[col][row] == grid[col+1][row] &&
-    				grid[col][row] == grid[col+2][row] &&
-    				grid[col][row] == grid[col+3][row])
-    				{
-    					win = true;
-    				}
+    			return -1;
     		}
+    		r = 63 - Long.numberOfLeadingZeros(colsMask[col]);
+    		player = 3 - player;
+    		remove(col,r);
     	}
-    	//Check for vertical win
-    	for (int row=0;row<3;row++)
+    	else
     	{
-    		for (int col = 0;col<7;col++)
-    		{
-    			if (grid[col][row] != 0 &&
-    				grid[col][row] == grid[col][row+1] &&
-    				grid[col][row] == grid[col][row+2] &&
-    				grid[col][row] == grid[col][row+3])
-    				{
-    					win = true;
-    				}
-    		}
+	    	long column = ((1L << height) - 1) << (col*h1);
+	    	long top = Long.highestOneBit(mask & column);
+	    	if (top == 0)
+	    	{
+	    		return -1;
+	    	}
+	    	r = Long.numberOfTrailingZeros(top) - col*h1;
+	    	player = 3 - player;
+	    	remove(top,col,r);
     	}
-    	//Check for diagonal win (/)
-    	for (int row=5;row>2;row--)
+    	key ^= side;
+    	mirrorKey ^= side;
+    	//Moves are only made before the game ends, so taking one back
+    	// clears the win, unless the grid was set up with more than one.
+    	if (won)
     	{
-    		for (int col = 0;col<4;col++)
-    		{
-    			if (grid[col][row] != 0 &&
-    				grid[col][row] == grid[col+1][row-1] &&
-    				grid[col][row] == grid[col+2][row-2] &&
-    				grid[col][row] == grid[col+3][row-3])
-    				{
-    					win = true;
-    				}
-    		}
+    		won = aligned(1) || aligned(2);
     	}
-    	//Check for diagonal win (\)
-    	for (int row=0;row<3;row++)
+    	return height - 1 - r;
+    }
+
+    // Determine if game board is full.
+    public boolean full()
+    {
+    	if (cols1 != null)
     	{
-    		for (int col = 0;col<4;col++)
-    		{
-    			if (grid[col][row] != 0 &&
-    				grid[col][row] == grid[col+1][row+1] &&
-    				grid[col][row] == grid[col+2][row+2] &&
-    				grid[col][row] == grid[col+3][row+3])
-    				{
-    					win = true;
-    				}
-    		}
+    		return filled == width*height;
     	}
-    	return win;
+    	return mask == board;
     }
-}
\ No newline at end of file
+    // Return true if a player has won.
+    public boolean win()
+    {
+    	return won;
+    }
+
+	//Return the columns that are not full, bit c set for col c.
+	public long playableColumns()
+	{
+		long cols = 0;
+		if (cols1 != null)
+		{
+			for (int col=0; col<width; col++)
+			{
+				if (colsMask[col] + 1 < 1L << height)
+				{
+					cols |= 1L << col;
+				}
+			}
+			return cols;
+		}
+		for (long possible = (mask + bottom) & board; possible != 0; possible &= possible - 1)
+		{
+			cols |= 1L << (Long.numberOfTrailingZeros(possible) / h1);
+		}
+		return cols;
+	}
+
+	//Return the columns where the player to move would get enough in a
+	// row at once, bit c set for col c.
+	public long winningColumns()
+	{
+		long cols = 0;
+		if (cols1 != null)
+		{
+			for (int col=0; col<width; col++)
+			{
+				if (drop(col) != -1)
+				{
+					if (won)
+					{
+						cols |= 1L << col;
+					}
+					undo(col);
+				}
+			}
+			return cols;
+		}
+		long wins = spots(player == 1 ? disc1 : disc2) & (mask + bottom);
+		for (; wins != 0; wins &= wins - 1)
+		{
+			cols |= 1L << (Long.numberOfTrailingZeros(wins) / h1);
+		}
+		return cols;
+	}
+
+	//Return the columns where a checker does not let the other player get
+	// enough in a row with the next move, bit c set for col c. If the other
+	// player already can in a column, only that column is returned, and
+	// none if it can in two. Whether the move itself wins is not looked at.
+	public long nonLosingColumns()
+	{
+		long cols = 0;
+		if (cols1 != null)
+		{
+			player = 3 - player;
+			long forced = winningColumns();
+			player = 3 - player;
+			if ((forced & (forced - 1)) != 0)
+			{
+				return 0;
+			}
+			long possible = forced != 0 ? forced : playableColumns();
+			for (int col=0; col<width; col++)
+			{
+				if ((possible >>> col & 1) == 0)
+				{
+					continue;
+				}
+				//Drop both checkers without looking at the first's line.
+				int r = Long.numberOfTrailingZeros(colsMask[col] + 1);
+				boolean wasWon = won;
+				place(col,r);
+				player = 3 - player;
+				boolean loses = drop(col) != -1;
+				if (loses)
+				{
+					loses = won;
+					undo(col);
+				}
+				player = 3 - player;
+				remove(col,r);
+				won = wasWon;
+				if (!loses)
+				{
+					cols |= 1L << col;
+				}
+			}
+			return cols;
+		}
+		long threats = spots(player == 1 ? disc2 : disc1);
+		long possible = (mask + bottom) & board;
+		long forced = possible & threats;
+		if (forced != 0)
+		{
+			if ((forced & (forced - 1)) != 0)
+			{
+				//Two places to win; only one can be taken.
+				return 0;
+			}
+			possible = forced;
+		}
+		//Not right under a slot the other player would win on.
+		for (possible &= ~(threats >>> 1); possible != 0; possible &= possible - 1)
+		{
+			cols |= 1L << (Long.numberOfTrailingZeros(possible) / h1);
+		}
+		return cols;
+	}
+
+	//Empty the grid, keeping the player to move.
+	private void clear()
+	{
+		disc1 = 0;
+		disc2 = 0;
+		mask = 0;
+		if (cols1 != null)
+		{
+			java.util.Arrays.fill(cols1,0);
+			java.util.Arrays.fill(cols2,0);
+			java.util.Arrays.fill(colsMask,0);
+		}
+		filled = 0;
+		position = null;
+	}
+
+	//Put the current player's checker on the given bit of a single word,
+	// the bit of col, r rows from the bottom.
+	private void place(long bit, int col, int r)
+	{
+		if (player == 1)
+		{
+			disc1 |= bit;
+		}
+		else
+		{
+			disc2 |= bit;
+		}
+		mask |= bit;
+		filled++;
+		hash(col,r);
+	}
+
+	//Take the current player's checker back off the given bit.
+	private void remove(long bit, int col, int r)
+	{
+		disc1 &= ~bit;
+		disc2 &= ~bit;
+		mask &= ~bit;
+		filled--;
+		hash(col,r);
+	}
+
+	//Put the current player's checker in col, r rows from the bottom.
+	private void place(int col, int r)
+	{
+		if (cols1 != null)
+		{
+			long bit = 1L << r;
+			if (player == 1)
+			{
+				cols1[col] |= bit;
+			}
+			else
+			{
+				cols2[col] |= bit;
+			}
+			colsMask[col] |= bit;
+		}
+		else
+		{
+			long bit = 1L << (col*h1 + r);
+			if (player == 1)
+			{
+				disc1 |= bit;
+			}
+			else
+			{
+				disc2 |= bit;
+			}
+			mask |= bit;
+		}
+		filled++;
+		hash(col,r);
+	}
+
+	//Take the current player's checker back out of col, r rows from the bottom.
+	private void remove(int col, int r)
+	{
+		if (cols1 != null)
+		{
+			long bit = ~(1L << r);
+			cols1[col] &= bit;
+			cols2[col] &= bit;
+			colsMask[col] &= bit;
+		}
+		else
+		{
+			long bit = ~(1L << (col*h1 + r));
+			disc1 &= bit;
+			disc2 &= bit;
+			mask &= bit;
+		}
+		filled--;
+		hash(col,r);
+	}
+
+	//Add or take away the current player's checker in col, r rows from
+	// the bottom, in both keys.
+	private void hash(int col, int r)
+	{
+		key ^= zobrist[player-1][col*h1 + r];
+		mirrorKey ^= zobrist[player-1][(width-1-col)*h1 + r];
+		position = null;
+	}
+
+	//Return true if player p holds enough in a row in any direction.
+	private boolean aligned(int p)
+	{
+		if (cols1 != null)
+		{
+			long[] cols = p == 1 ? cols1 : cols2;
+			for (int col=0; col<width; col++)
+			{
+				for (int r=0; r<height; r++)
+				{
+					if ((cols[col] & (1L << r)) != 0 && alignedAt(col,r))
+					{
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+		long pos = p == 1 ? disc1 : disc2;
+		//Each shift lines up a neighbour: 1 vertical, h1 horizontal,
+		// h1-1 and h1+1 for the two diagonals.
+		return aligned(pos,1) || aligned(pos,h1) || aligned(pos,h1-1) || aligned(pos,h1+1);
+	}
+
+	//Return true if pos has connect checkers in a line, shift s apart.
+	private boolean aligned(long pos, int s)
+	{
+		long m = pos;
+		for (int i=1; i<connect && m != 0; i++)
+		{
+			m &= pos >>> (i*s);
+		}
+		return m != 0;
+	}
+
+	//Return true if the checker on bit is part of enough in a row in pos.
+	// Walks at most connect-1 slots each way along the 4 lines through it.
+	private boolean alignedAt(long pos, long bit)
+	{
+		return run(pos,bit,1) || run(pos,bit,h1)
+			|| run(pos,bit,h1-1) || run(pos,bit,h1+1);
+	}
+
+	//Count pos's checkers in a line through bit, shift s apart.
+	// The empty top bit of each column ends any line that would wrap.
+	private boolean run(long pos, long bit, int s)
+	{
+		int n = 1;
+		for (long m = bit >>> s; n < connect && (pos & m) != 0; m >>>= s)
+		{
+			n++;
+		}
+		for (long m = bit << s; n < connect && (pos & m) != 0; m <<= s)
+		{
+			n++;
+		}
+		return n >= connect;
+	}
+
+	//Return the empty slots, playable or not, where a checker of pos would
+	// complete a line. For each direction and each place the empty slot
+	// can take in the line, the neighbours on either side must all be set.
+	// As with aligned(), the empty top bits stop lines that would wrap.
+	private long spots(long pos)
+	{
+		//Vertical: only the slot above a column's checkers.
+		long r = pos << 1;
+		for (int i=2; i<connect; i++)
+		{
+			r &= pos << i;
+		}
+		for (int s = h1-1; s <= h1+1; s++)
+		{
+			for (int before=0; before<connect; before++)
+			{
+				long m = -1L;
+				for (int i=1; i<=before && m != 0; i++)
+				{
+					m = i*s < 64 ? m & pos << (i*s) : 0;
+				}
+				for (int i=1; i<connect-before && m != 0; i++)
+				{
+					m = i*s < 64 ? m & pos >>> (i*s) : 0;
+				}
+				r |= m;
+			}
+		}
+		return r & board & ~mask;
+	}
+
+	//Same for one word per column: the checker in col, r rows from the
+	// bottom, stepping dc cols and dr rows along each line.
+	private boolean alignedAt(int col, int r)
+	{
+		long[] cols = (cols1[col] & (1L << r)) != 0 ? cols1 : cols2;
+		return run(cols,col,r,0,1) || run(cols,col,r,1,0)
+			|| run(cols,col,r,1,1) || run(cols,col,r,1,-1);
+	}
+
+	private boolean run(long[] cols, int col, int r, int dc, int dr)
+	{
+		int n = 1;
+		for (int c = col-dc, y = r-dr; n < connect && has(cols,c,y); c -= dc, y -= dr)
+		{
+			n++;
+		}
+		for (int c = col+dc, y = r+dr; n < connect && has(cols,c,y); c += dc, y += dr)
+		{
+			n++;
+		}
+		return n >= connect;
+	}
+
+	private boolean has(long[] cols, int col, int r)
+	{
+		return col >= 0 && col < width && r >= 0 && r < height
+			&& (cols[col] & (1L << r)) != 0;
+	}
+
+	//Fixed seed, so keys are the same from run to run.
+	private static long[][] zobristTable(int width, int height)
+	{
+		java.util.Random random = new java.util.Random(0x434634L);
+		long[][] table = new long[2][width*(height+1)];
+		for (int p=0; p<2; p++)
+		{
+			for (int i=0; i<table[p].length; i++)
+			{
+				table[p][i] = random.nextLong();
+			}
+		}
+		return table;
+	}
+}
@@ -0,0 +1,151 @@
+/**
+ * EndgameBuilder.java
+ *
+ * Writes an endgame database for EndgameDatabase.
+ *
+ * There are far too many positions with a few empty slots to solve them
+ * all, so the database holds the endgames of sample games instead: random
+ * games, the same every run for a given seed, are played until the given
+ * number of slots is left empty, and every position reachable from there
+ * is solved.
+ *
+ * Usage: java EndgameBuilder [empty] [games] [file] [seed]
+ *  (defaults 10, 2000, endgame.bin and 1)
+ *
+ */
+
+import java.io.IOException;
+import java.util.*;
+
+public class EndgameBuilder
+{
+	//Result of each solved position, by database key.
+	private final HashMap<Long,Integer> solved = new HashMap<Long,Integer>();
+
+	public static void main(String[] args) throws IOException
+	{
+		int empty = 10;
+		int games = 2000;
+		String path = "endgame.bin";
+		long seed = 1;
+		if (args.length > 0)
+		{
+			empty = Integer.parseInt(args[0]);
+		}
+		if (args.length > 1)
+		{
+			games = Integer.parseInt(args[1]);
+		}
+		if (args.length > 2)
+		{
+			path = args[2];
+		}
+		if (args.length > 3)
+		{
+			seed = Long.parseLong(args[3]);
+		}
+
+		EndgameBuilder builder = new EndgameBuilder();
+		Random random = new Random(seed);
+		long start = System.currentTimeMillis();
+		for (int g=0; g<games; g++)
+		{
+			ConnectFourModel model = builder.playout(random,empty);
+			if (model != null)
+			{
+				builder.solve(model);
+			}
+		}
+		builder.write(path,empty);
+		System.out.println(builder.solved.size() + " positions with at most " + empty
+			+ " empty slots in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	//Play random columns, either player first, until only empty slots are
+	// left. Moves that win are taken back, as most random games would end
+	// long before; returns null if no other move could be found.
+	private ConnectFourModel playout(Random random, int empty)
+	{
+		ConnectFourModel model = new ConnectFourModel();
+		if (random.nextBoolean())
+		{
+			model.setPlayer(2);
+		}
+		int tries = 0;
+		for (int filled = 0; filled < 42 - empty; )
+		{
+			int col = random.nextInt(7);
+			if (model.drop(col) != -1)
+			{
+				if (!model.win())
+				{
+					filled++;
+					tries = 0;
+					continue;
+				}
+				model.undo(col);
+			}
+			if (++tries == 100)
+			{
+				return null;
+			}
+		}
+		return model;
+	}
+
+	//Return the result of the position for the player to move, solving
+	// and remembering it and every position after it.
+	private int solve(ConnectFourModel model)
+	{
+		long key = EndgameDatabase.key(model);
+		Integer known = solved.get(key);
+		if (known != null)
+		{
+			return known;
+		}
+		int best = EndgameDatabase.LOSS;
+		//Every move is followed, even after a win is found, so that the
+		// positions a search may reach after a weaker move are there too.
+		for (int col=0; col<7; col++)
+		{
+			if (model.drop(col) != -1)
+			{
+				int result;
+				if (model.win())
+				{
+					result = EndgameDatabase.WIN;
+				}
+				else if (model.full())
+				{
+					result = EndgameDatabase.DRAW;
+				}
+				else
+				{
+					//What is a win for the opponent is a loss for this player.
+					result = EndgameDatabase.WIN - solve(model);
+				}
+				model.undo(col);
+				best = Math.max(best,result);
+			}
+		}
+		solved.put(key,best);
+		return best;
+	}
+
+	private void write(String path, int empty) throws IOException
+	{
+		long[] keys = new long[solved.size()];
+		int i = 0;
+		for (long key : solved.keySet())
+		{
+			keys[i++] = key;
+		}
+		Arrays.sort(keys);
+		int[] results = new int[keys.length];
+		for (i=0; i<keys.length; i++)
+		{
+			results[i] = solved.get(keys[i]);
+		}
+		EndgameDatabase.write(path,empty,keys,results);
+	}
+}
@@ -0,0 +1,174 @@
+/**
+ * EndgameDatabase.java
+ *
+ * Holds the solved result (win, draw or loss for the player to move) of
+ * endgame positions with at most a few empty slots, written ahead of time
+ * by EndgameBuilder, so that the search can look them up instead of
+ * scoring them with eval().
+ *
+ * A position and its mirror image have the same result, so only the
+ * smaller of their two keys is kept. The file is big-endian:
+ *
+ *   int    MAGIC
+ *   int    most empty slots of any position
+ *   int    number of positions n
+ *   n x    long  key, sorted (see key())
+ *   (n+31)/32 x long  results, 2 bits each, in key order
+ *
+ * The file is memory-mapped read-only and probed where it lies, as
+ * OpeningBook is, so games and JVMs on one machine share one copy of it
+ * through the page cache; keys take 8 bytes and results 2 bits per
+ * position.
+ *
+ */
+
+import java.io.*;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class EndgameDatabase
+{
+	//Results, for the player to move.
+	public static final int UNKNOWN = -1;
+	public static final int LOSS = 0;
+	public static final int DRAW = 1;
+	public static final int WIN = 2;
+
+	private static final int MAGIC = 0x43344547;
+	private static final int HEADER = 12;
+
+	private final int maxEmpty;
+	private final int count;
+	//The keys and then the results, as longs.
+	private final LongBuffer data;
+
+	private EndgameDatabase(MappedByteBuffer buf)
+	{
+		maxEmpty = buf.getInt(4);
+		count = buf.getInt(8);
+		buf.position(HEADER);
+		data = buf.asLongBuffer();
+	}
+
+	//Map the database file at path.
+	public static EndgameDatabase open(String path) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(path,"r");
+		try
+		{
+			FileChannel channel = file.getChannel();
+			if (channel.size() < HEADER)
+			{
+				throw new IOException(path + " is not an endgame database");
+			}
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY,0,channel.size());
+			int n = buf.getInt(8);
+			if (buf.getInt(0) != MAGIC
+				|| channel.size() != HEADER + 8L*n + 8L*((n + 31)/32))
+			{
+				throw new IOException(path + " is not an endgame database");
+			}
+			//The mapping stays valid after the file is closed.
+			return new EndgameDatabase(buf);
+		}
+		finally
+		{
+			file.close();
+		}
+	}
+
+	//Write a database of the given positions, which must be sorted by key.
+	public static void write(String path, int maxEmpty, long[] keys, int[] results)
+		throws IOException
+	{
+		long[] packed = new long[(keys.length + 31)/32];
+		for (int i=0; i<keys.length; i++)
+		{
+			packed[i/32] |= (long)results[i] << (2*(i%32));
+		}
+		DataOutputStream out = new DataOutputStream(
+			new BufferedOutputStream(new FileOutputStream(path)));
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(maxEmpty);
+			out.writeInt(keys.length);
+			for (int i=0; i<keys.length; i++)
+			{
+				out.writeLong(keys[i]);
+			}
+			for (int i=0; i<packed.length; i++)
+			{
+				out.writeLong(packed[i]);
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	//Return the most empty slots of any position in the database;
+	// positions with more are never in it.
+	public int getMaxEmpty()
+	{
+		return maxEmpty;
+	}
+
+	//Return the number of positions in the database.
+	public int size()
+	{
+		return count;
+	}
+
+	//Return the result for the player to move in the given position,
+	// or UNKNOWN if it is not in the database.
+	public int probe(ConnectFourModel pos)
+	{
+		int i = find(key(pos));
+		if (i < 0)
+		{
+			return UNKNOWN;
+		}
+		return (int)(data.get(count + i/32) >>> (2*(i%32))) & 3;
+	}
+
+	//Binary search for key; only absolute reads are used, so any number
+	// of threads may probe at once.
+	private int find(long key)
+	{
+		int lo = 0;
+		int hi = count - 1;
+		while (lo <= hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			long k = data.get(mid);
+			if (k < key)
+			{
+				lo = mid + 1;
+			}
+			else if (k > key)
+			{
+				hi = mid - 1;
+			}
+			else
+			{
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	//Return the database key of a position: the smaller of its position key
+	// and its mirror image's, with bit 49 set when player 2 is to move.
+	public static long key(ConnectFourModel pos)
+	{
+		long key = Math.min(pos.getPositionKey(),pos.getMirrorPositionKey());
+		if (pos.getPlayer() == 2)
+		{
+			key |= 1L << 49;
+		}
+		return key;
+	}
+}
@@ -0,0 +1,198 @@
+/**
+ * EngineMonitor.java
+ *
+ * Adds up the SearchStats of the searches the engine makes, so that the
+ * load on the engine can be watched while it runs. One instance adds up
+ * the searches for the moves the computer plays, the other those made
+ * while pondering, so that searches thrown away do not skew the first.
+ * They are registered with the platform MBean server as
+ * four_row:type=Engine and four_row:type=Engine,name=Ponder, where they
+ * are allowed to be.
+ *
+ */
+
+import java.lang.management.ManagementFactory;
+import javax.management.ObjectName;
+
+public class EngineMonitor implements EngineMonitorMBean
+{
+	private static final EngineMonitor INSTANCE = new EngineMonitor("four_row:type=Engine");
+	private static final EngineMonitor PONDERING =
+		new EngineMonitor("four_row:type=Engine,name=Ponder");
+
+	private long searches;
+	private long nodes;
+	private long leaves;
+	private long nanos;
+	private long depths;
+	private double branching;
+	private long probes;
+	private long hits;
+	private long cutoffs;
+	private long firstCutoffs;
+	private long researches;
+	private long windowMisses;
+	private long researchNodes;
+	private SearchStats last;
+
+	private EngineMonitor(String name)
+	{
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+				new ObjectName(name));
+		}
+		catch (Exception e)
+		{
+			//Not allowed in an applet; the totals are still kept.
+		}
+	}
+
+	//Return the monitor of the searches for moves played.
+	public static EngineMonitor get()
+	{
+		return INSTANCE;
+	}
+
+	//Return the monitor of the searches made while pondering.
+	public static EngineMonitor pondering()
+	{
+		return PONDERING;
+	}
+
+	//Add one search to the totals.
+	public synchronized void record(SearchStats s)
+	{
+		searches++;
+		nodes += s.getNodes();
+		leaves += s.getLeaves();
+		nanos += s.getNanos();
+		depths += s.getDepth();
+		branching += s.getBranchingFactor();
+		probes += s.getProbes();
+		hits += s.getHits();
+		cutoffs += s.getCutoffs();
+		firstCutoffs += s.getFirstMoveCutoffs();
+		researches += s.getResearches();
+		windowMisses += s.getWindowMisses();
+		researchNodes += s.getResearchNodes();
+		last = s;
+	}
+
+	public synchronized long getSearches()
+	{
+		return searches;
+	}
+
+	public synchronized long getNodes()
+	{
+		return nodes;
+	}
+
+	public synchronized long getLeaves()
+	{
+		return leaves;
+	}
+
+	public synchronized long getSearchMillis()
+	{
+		return nanos / 1000000;
+	}
+
+	public synchronized double getNodesPerSecond()
+	{
+		if (nanos == 0)
+		{
+			return 0;
+		}
+		return nodes * 1e9 / nanos;
+	}
+
+	public synchronized double getAverageDepth()
+	{
+		if (searches == 0)
+		{
+			return 0;
+		}
+		return (double)depths/searches;
+	}
+
+	public synchronized double getAverageBranchingFactor()
+	{
+		if (searches == 0)
+		{
+			return 0;
+		}
+		return branching/searches;
+	}
+
+	public synchronized double getHashHitRate()
+	{
+		if (probes == 0)
+		{
+			return 0;
+		}
+		return (double)hits/probes;
+	}
+
+	public synchronized long getCutoffs()
+	{
+		return cutoffs;
+	}
+
+	public synchronized double getFirstMoveCutoffRate()
+	{
+		if (cutoffs == 0)
+		{
+			return 0;
+		}
+		return (double)firstCutoffs/cutoffs;
+	}
+
+	public synchronized long getResearches()
+	{
+		return researches;
+	}
+
+	public synchronized long getWindowMisses()
+	{
+		return windowMisses;
+	}
+
+	public synchronized double getResearchRate()
+	{
+		if (nodes == 0)
+		{
+			return 0;
+		}
+		return (double)researchNodes/nodes;
+	}
+
+	public synchronized String getLastSearch()
+	{
+		if (last == null)
+		{
+			return "";
+		}
+		return last.toString();
+	}
+
+	//Start the totals again from zero.
+	public synchronized void reset()
+	{
+		searches = 0;
+		nodes = 0;
+		leaves = 0;
+		nanos = 0;
+		depths = 0;
+		branching = 0;
+		probes = 0;
+		hits = 0;
+		cutoffs = 0;
+		firstCutoffs = 0;
+		researches = 0;
+		windowMisses = 0;
+		researchNodes = 0;
+		last = null;
+	}
+}
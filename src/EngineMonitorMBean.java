@@ -0,0 +1,27 @@
+/**
+ * EngineMonitorMBean.java
+ *
+ * The engine's statistics as seen through JMX, e.g. in jconsole under
+ * four_row:type=Engine, or four_row:type=Engine,name=Ponder for pondering.
+ * See EngineMonitor.
+ *
+ */
+
+public interface EngineMonitorMBean
+{
+	long getSearches();
+	long getNodes();
+	long getLeaves();
+	long getSearchMillis();
+	double getNodesPerSecond();
+	double getAverageDepth();
+	double getAverageBranchingFactor();
+	double getHashHitRate();
+	long getCutoffs();
+	double getFirstMoveCutoffRate();
+	long getResearches();
+	long getWindowMisses();
+	double getResearchRate();
+	String getLastSearch();
+	void reset();
+}
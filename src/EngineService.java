@@ -0,0 +1,279 @@
+/**
+ * EngineService.java
+ *
+ * Runs Minimax searches on a background thread so that the Swing event
+ * thread never waits for the computer to think.
+ *
+ * requestMove() returns at once with a Future for the column. The given
+ * Listener hears about each finished search depth and about the chosen
+ * column, called from the engine thread. A new request or cancel() stops
+ * the search in progress; a stopped search never reports a column.
+ * Every search whose column is reported is added to the totals of
+ * EngineMonitor.get(); completed pondering searches are added to those of
+ * EngineMonitor.pondering().
+ *
+ * Positions are handed over as Position snapshots, which the engine
+ * thread reads while the game's model moves on.
+ *
+ * While the player thinks, ponder() searches ahead the positions after
+ * each move the player could make. If the player then makes one of them,
+ * requestMove() has the answer already. Calling it again for the same
+ * position, as the player moves the chip, only moves the likely column to
+ * the front of those still waiting; the search in progress goes on.
+ *
+ */
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class EngineService
+{
+	//Told about a running search, from the engine thread.
+	public interface Listener
+	{
+		void depthReached(int depth);
+		void moveChosen(int col);
+	}
+
+	private final ExecutorService executor;
+	//Counts requests and cancels; a search reports only if none came since.
+	private int request;
+	private Minimax current;
+	private Future<Integer> task;
+	private OpeningBook book;
+	private EndgameDatabase endgame;
+
+	//Pondering: the grid pondered and the depth, the player's columns
+	// still to search, likeliest first, and the column found for each
+	// position after the player's move, by position key.
+	private int ponderId;
+	private Position ponderBase;
+	private long ponderPosition = -1;
+	private int ponderDepth;
+	private final List<Integer> ponderQueue = new ArrayList<Integer>();
+	private boolean ponderRunning;
+	private Minimax pondering;
+	private final Map<Long,Integer> pondered = new ConcurrentHashMap<Long,Integer>();
+
+	public EngineService()
+	{
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+		{
+			public Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(r,"engine");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	//Look opening positions up in the given book before searching.
+	public synchronized void setBook(OpeningBook b)
+	{
+		book = b;
+	}
+
+	//Look endgame positions up in the given database while searching.
+	public synchronized void setEndgame(EndgameDatabase db)
+	{
+		endgame = db;
+	}
+
+	//Start searching the given position, computer to move, depth plies deep.
+	// Any search still running is cancelled first. If the position was
+	// pondered, its column is reported without searching.
+	public synchronized Future<Integer> requestMove(Position p, int depth, final Listener listener)
+	{
+		cancel();
+		final int id = request;
+		final Integer known = depth == ponderDepth ? pondered.get(p.getPositionKey()) : null;
+		if (known != null)
+		{
+			task = executor.submit(new Callable<Integer>()
+			{
+				public Integer call()
+				{
+					if (!isCancelled(id))
+					{
+						listener.moveChosen(known);
+					}
+					return known;
+				}
+			});
+			return task;
+		}
+		final Minimax comp = minimax(p,depth);
+		comp.setProgress(new Minimax.Progress()
+		{
+			public void iterationDone(int d, int col)
+			{
+				listener.depthReached(d);
+			}
+		});
+		current = comp;
+		task = executor.submit(new Callable<Integer>()
+		{
+			public Integer call()
+			{
+				int col = comp.calcValue();
+				if (col != -1 && !isCancelled(id))
+				{
+					EngineMonitor.get().record(comp.getStats());
+					listener.moveChosen(col);
+				}
+				return col;
+			}
+		});
+		return task;
+	}
+
+	//Search, in the background, the position after each move the player
+	// could make in p, depth plies deep as requestMove() would.
+	// The likely column is searched first, then the others from the centre
+	// out. For the position already being pondered this only moves the
+	// likely column to the front, so it may be called whenever the likely
+	// column changes without losing the search in progress.
+	public synchronized void ponder(Position p, int depth, int likely)
+	{
+		final long base = p.getPositionKey();
+		if (base != ponderPosition || depth != ponderDepth)
+		{
+			//What is being searched can no longer occur.
+			stopPondering();
+			pondered.clear();
+			ponderQueue.clear();
+			ponderBase = p;
+			ponderPosition = base;
+			ponderDepth = depth;
+			int[] cols = MoveOrder.centerOut(p.getWidth());
+			for (int i=0; i<cols.length; i++)
+			{
+				if (afterMove(p,cols[i]) != null)
+				{
+					ponderQueue.add(cols[i]);
+				}
+			}
+		}
+
+		if (ponderQueue.remove(Integer.valueOf(likely)))
+		{
+			ponderQueue.add(0,likely);
+		}
+		if (ponderRunning || ponderQueue.isEmpty())
+		{
+			return;
+		}
+
+		ponderRunning = true;
+		final int id = ponderId;
+		executor.submit(new Runnable()
+		{
+			public void run()
+			{
+				while (true)
+				{
+					Minimax comp;
+					Position next;
+					int col;
+					synchronized (EngineService.this)
+					{
+						if (id != ponderId)
+						{
+							return;
+						}
+						if (ponderQueue.isEmpty())
+						{
+							ponderRunning = false;
+							return;
+						}
+						col = ponderQueue.remove(0);
+						next = afterMove(ponderBase,col);
+						comp = minimax(next,ponderDepth);
+						pondering = comp;
+					}
+					int found = comp.calcValue();
+					synchronized (EngineService.this)
+					{
+						pondering = null;
+						if (id != ponderId || found == -1)
+						{
+							//Stopped: search it again if pondering resumes
+							// on the same position.
+							if (ponderPosition == base && !ponderQueue.contains(col))
+							{
+								ponderQueue.add(0,col);
+							}
+							return;
+						}
+						pondered.put(next.getPositionKey(),found);
+					}
+					EngineMonitor.pondering().record(comp.getStats());
+				}
+			}
+		});
+	}
+
+	//Stop the search in progress, if any, and any pondering.
+	public synchronized void cancel()
+	{
+		request++;
+		stopPondering();
+		if (current != null)
+		{
+			current.stop();
+			current = null;
+		}
+		if (task != null)
+		{
+			task.cancel(false);
+			task = null;
+		}
+	}
+
+	//Stop the engine thread for good.
+	public synchronized void shutdown()
+	{
+		cancel();
+		executor.shutdownNow();
+	}
+
+	private synchronized boolean isCancelled(int id)
+	{
+		return id != request;
+	}
+
+	//Stop pondering, keeping what it has found and what it has still to
+	// search.
+	private void stopPondering()
+	{
+		ponderId++;
+		ponderRunning = false;
+		if (pondering != null)
+		{
+			pondering.stop();
+			pondering = null;
+		}
+	}
+
+	//Return the position after the player drops a checker in col of p, or
+	// null if that is not possible or ends the game.
+	private static Position afterMove(Position p, int col)
+	{
+		ConnectFourModel model = new ConnectFourModel(p);
+		model.setPlayer(1);
+		if (model.drop(col) == -1 || model.win() || model.full())
+		{
+			return null;
+		}
+		return model.getPosition();
+	}
+
+	private Minimax minimax(Position p, int depth)
+	{
+		Minimax comp = new Minimax(p,depth);
+		comp.setBook(book);
+		comp.setEndgame(endgame);
+		return comp;
+	}
+}
@@ -0,0 +1,604 @@
+/**
+ * Evaluator.java
+ *
+ * Scores a grid the same way as Minimax.eval(), but keeps the score up to
+ * date as checkers are played and taken back instead of rescanning the
+ * whole grid at every leaf of the search.
+ *
+ * eval() adds up patterns found in fixed windows of the grid: runs of 3,
+ * 4 or 5 slots in a line, some with the slots under a gap that make the
+ * gap playable. Windows whose slots start the same are merged, leaving
+ * 103 terms on the 7*6 grid. A term reads the contents of its slots as a base-3 number
+ * (0 empty, 1 player 1, 2 player 2) and looks it up in a table built once
+ * from the patterns in score(). The table holds the score for player 1
+ * in the high 32 bits and for player 2 in the low 32, so one addition per
+ * term scores the grid for both players. Playing a checker only looks up
+ * again the terms whose window holds that slot.
+ *
+ * Other grids get the same windows wherever they fit. When another number
+ * than 4 in a row wins, the terms are instead every line of that many
+ * slots, scored by how many checkers of one player it holds.
+ *
+ */
+
+public class Evaluator
+{
+	//Kinds of window; see score() for the patterns of each.
+	private static final int H2 = 0;	// - 4 slots, 2-in-a-row
+	private static final int V2 = 1;	// | 3 slots
+	private static final int D2U = 2;	// / 4 slots
+	private static final int D2D = 3;	// \ 4 slots
+	private static final int H3 = 4;	// - 4 slots, 3-in-a-row
+	private static final int H3S = 5;	// - 4 slots and the 3 slots above
+	private static final int H3B = 6;	// - 4 slots on the bottom row
+	private static final int V3 = 7;	// | 4 slots
+	private static final int D3U = 8;	// / 4 slots
+	private static final int D3US = 9;	// / 4 slots and the slots under the gaps
+	private static final int D3D = 10;	// \ 4 slots
+	private static final int D3DS = 11;	// \ 4 slots and the slots under the gaps
+	private static final int H5 = 12;	// - 5 slots, open-ended 3-in-a-row
+	private static final int D5D = 13;	// \ 5 slots
+	private static final int D5U = 14;	// / 5 slots
+
+	private static final int LINE = 15;	// connect slots in any line, other lengths than 4
+
+	//Terms of the standard grid, and of the other grids asked for so far,
+	// by width, height and connect.
+	private static final Shape STANDARD = new Shape(ConnectFourModel.WIDTH,
+		ConnectFourModel.HEIGHT,ConnectFourModel.CONNECT);
+	private static final java.util.HashMap<Integer,Shape> SHAPES = new java.util.HashMap<Integer,Shape>();
+
+	//Slots (col*height+row) and score table of every term.
+	private final int height;
+	private final int[][] cells;
+	private final long[][] tables;
+	//For each slot, the terms holding it and the slot's place value in them.
+	private final int[][] cellTerms;
+	private final int[][] cellPower;
+
+	private final int[] code;
+	private long total;
+
+	//Score the 7*6 grid with 4 in a row to win.
+	public Evaluator()
+	{
+		this(STANDARD);
+	}
+
+	//Score a grid of the given cols and rows with connect in a row to win.
+	public Evaluator(int width, int height, int connect)
+	{
+		this(shape(width,height,connect));
+	}
+
+	private Evaluator(Shape shape)
+	{
+		height = shape.height;
+		cells = shape.cells;
+		tables = shape.tables;
+		cellTerms = shape.cellTerms;
+		cellPower = shape.cellPower;
+		code = new int[cells.length];
+	}
+
+	//Return the terms of a grid, building them the first time.
+	private static synchronized Shape shape(int width, int height, int connect)
+	{
+		if (width == ConnectFourModel.WIDTH && height == ConnectFourModel.HEIGHT
+			&& connect == ConnectFourModel.CONNECT)
+		{
+			return STANDARD;
+		}
+		int id = (width*64 + height)*64 + connect;
+		Shape shape = SHAPES.get(id);
+		if (shape == null)
+		{
+			shape = new Shape(width,height,connect);
+			SHAPES.put(id,shape);
+		}
+		return shape;
+	}
+
+	//The terms of one size of grid.
+	private static class Shape
+	{
+		final int height;
+		final int[][] cells;
+		final long[][] tables;
+		final int[][] cellTerms;
+		final int[][] cellPower;
+
+		Shape(int width, int height, int connect)
+		{
+			this.height = height;
+			java.util.ArrayList<int[]> terms = new java.util.ArrayList<int[]>();
+			if (connect == 4)
+			{
+				windows(terms,width,height);
+			}
+			else
+			{
+				lines(terms,width,height,connect);
+			}
+
+			//Merge each window into one whose slots start with its slots.
+			java.util.ArrayList<int[]> merged = new java.util.ArrayList<int[]>();
+			java.util.ArrayList<Integer> kinds = new java.util.ArrayList<Integer>();
+			for (int[] def : terms)
+			{
+				int[] slots = java.util.Arrays.copyOfRange(def,1,def.length);
+				int g = 0;
+				for (; g<merged.size(); g++)
+				{
+					if (prefix(slots,merged.get(g)) || prefix(merged.get(g),slots))
+					{
+						break;
+					}
+				}
+				if (g == merged.size())
+				{
+					merged.add(slots);
+					kinds.add(0);
+				}
+				else if (slots.length > merged.get(g).length)
+				{
+					merged.set(g,slots);
+				}
+				kinds.set(g,kinds.get(g) | (1 << def[0]));
+			}
+
+			//Windows with the same kinds and length share one table.
+			java.util.HashMap<Integer,long[]> shared = new java.util.HashMap<Integer,long[]>();
+			int size = width*height;
+			cells = new int[merged.size()][];
+			tables = new long[merged.size()][];
+			int[] count = new int[size];
+			for (int t=0; t<cells.length; t++)
+			{
+				cells[t] = merged.get(t);
+				int shape = kinds.get(t)*64 + cells[t].length;
+				if (!shared.containsKey(shape))
+				{
+					shared.put(shape,table(kinds.get(t),cells[t].length));
+				}
+				tables[t] = shared.get(shape);
+				for (int i=0; i<cells[t].length; i++)
+				{
+					count[cells[t][i]]++;
+				}
+			}
+			cellTerms = new int[size][];
+			cellPower = new int[size][];
+			for (int cell=0; cell<size; cell++)
+			{
+				cellTerms[cell] = new int[count[cell]];
+				cellPower[cell] = new int[count[cell]];
+				count[cell] = 0;
+			}
+			for (int t=0; t<cells.length; t++)
+			{
+				int power = 1;
+				for (int i=0; i<cells[t].length; i++)
+				{
+					int cell = cells[t][i];
+					cellTerms[cell][count[cell]] = t;
+					cellPower[cell][count[cell]] = power;
+					count[cell]++;
+					power *= 3;
+				}
+			}
+		}
+	}
+
+	//Add the windows of eval() for a grid of the given size.
+	// Rows count down from the top, as in the grid.
+	private static void windows(java.util.ArrayList<int[]> terms, int width, int height)
+	{
+		for (int row=0;row<height;row++)
+		{
+			for (int col=0;col<width-3;col++)
+			{
+				terms.add(term(H2,col,row,1,0,4,height));
+				terms.add(term(H3,col,row,1,0,4,height));
+				if (row<height-1)
+				{
+					terms.add(with(term(H3S,col,row,1,0,4,height),height,
+						col+1,row+1,col+2,row+1,col+3,row+1));
+				}
+				else
+				{
+					terms.add(term(H3B,col,row,1,0,4,height));
+				}
+			}
+			for (int col=0;col<width-4;col++)
+			{
+				terms.add(term(H5,col,row,1,0,5,height));
+			}
+		}
+		for (int row=height-1;row>1;row--)
+		{
+			for (int col=0;col<width;col++)
+			{
+				terms.add(term(V2,col,row,0,-1,3,height));
+				if (row>2)
+				{
+					terms.add(term(V3,col,row,0,-1,4,height));
+				}
+			}
+		}
+		for (int row=height-1;row>2;row--)
+		{
+			for (int col=0;col<width-3;col++)
+			{
+				terms.add(term(D2U,col,row,1,-1,4,height));
+				terms.add(term(D3U,col,row,1,-1,4,height));
+				terms.add(with(term(D3US,col,row,1,-1,4,height),height,
+					col+3,row-2,col+2,row-1,col+1,row));
+			}
+		}
+		for (int row=0;row<height-3;row++)
+		{
+			for (int col=0;col<width-3;col++)
+			{
+				terms.add(term(D2D,col,row,1,1,4,height));
+				terms.add(term(D3D,col,row,1,1,4,height));
+				terms.add(with(term(D3DS,col,row,1,1,4,height),height,
+					col+3,row+2,col+2,row+1,col+1,row));
+			}
+		}
+		for (int row=0;row<height-4;row++)
+		{
+			for (int col=0;col<width-4;col++)
+			{
+				terms.add(term(D5D,col,row,1,1,5,height));
+			}
+		}
+		for (int row=height-1;row>3;row--)
+		{
+			for (int col=0;col<width-4;col++)
+			{
+				terms.add(term(D5U,col,row,1,-1,5,height));
+			}
+		}
+	}
+
+	//Add every line of connect slots, for other lengths than 4.
+	private static void lines(java.util.ArrayList<int[]> terms, int width, int height, int connect)
+	{
+		int[][] steps = {{1,0},{0,1},{1,1},{1,-1}};
+		for (int col=0; col<width; col++)
+		{
+			for (int row=0; row<height; row++)
+			{
+				for (int[] s : steps)
+				{
+					int endCol = col + s[0]*(connect-1);
+					int endRow = row + s[1]*(connect-1);
+					if (endCol < width && endRow >= 0 && endRow < height)
+					{
+						terms.add(term(LINE,col,row,s[0],s[1],connect,height));
+					}
+				}
+			}
+		}
+	}
+
+	//Return the score of grid for player, in one pass over the terms.
+	// The grid may have any number of cols and rows; 4 in a row wins.
+	public static int eval(int[][] grid, int player)
+	{
+		Shape shape = STANDARD;
+		int height = grid[0].length;
+		if (grid.length != ConnectFourModel.WIDTH || height != ConnectFourModel.HEIGHT)
+		{
+			shape = shape(grid.length,height,ConnectFourModel.CONNECT);
+		}
+		long sum = 0;
+		for (int t=0; t<shape.cells.length; t++)
+		{
+			int[] cells = shape.cells[t];
+			int c = 0;
+			for (int i=cells.length-1; i>=0; i--)
+			{
+				c = c*3 + grid[cells[i]/height][cells[i]%height];
+			}
+			sum += shape.tables[t][c];
+		}
+		return unpack(sum,player);
+	}
+
+	//Start from the given grid.
+	public void set(int[][] grid)
+	{
+		total = 0;
+		for (int t=0; t<cells.length; t++)
+		{
+			code[t] = 0;
+			int power = 1;
+			for (int i=0; i<cells[t].length; i++)
+			{
+				int cell = cells[t][i];
+				code[t] += grid[cell/height][cell%height]*power;
+				power *= 3;
+			}
+			total += tables[t][code[t]];
+		}
+	}
+
+	//Start from the given position.
+	public void set(Position p)
+	{
+		total = 0;
+		for (int t=0; t<cells.length; t++)
+		{
+			code[t] = 0;
+			int power = 1;
+			for (int i=0; i<cells[t].length; i++)
+			{
+				int cell = cells[t][i];
+				code[t] += p.getBoardSlot(cell/height,cell%height)*power;
+				power *= 3;
+			}
+			total += tables[t][code[t]];
+		}
+	}
+
+	//Put player's checker in the empty slot (col,row).
+	public void play(int col, int row, int player)
+	{
+		update(col*height+row,player);
+	}
+
+	//Take player's checker back out of (col,row).
+	public void undo(int col, int row, int player)
+	{
+		update(col*height+row,-player);
+	}
+
+	//Return the score of the grid for player, as Minimax.eval() would.
+	public int score(int player)
+	{
+		return unpack(total,player);
+	}
+
+	private void update(int cell, int delta)
+	{
+		int[] terms = cellTerms[cell];
+		int[] power = cellPower[cell];
+		for (int i=0; i<terms.length; i++)
+		{
+			int t = terms[i];
+			total -= tables[t][code[t]];
+			code[t] += delta*power[i];
+			total += tables[t][code[t]];
+		}
+	}
+
+	//Return one player's half of a sum of table entries.
+	private static int unpack(long sum, int player)
+	{
+		int low = (int)sum;
+		if (player == 1)
+		{
+			return (int)((sum - low) >> 32);
+		}
+		return low;
+	}
+
+	//Build the table of a window of n slots holding the given kinds:
+	// every base-3 code of the window mapped to its packed scores.
+	private static long[] table(int kinds, int n)
+	{
+		int size = 1;
+		for (int i=0; i<n; i++)
+		{
+			size *= 3;
+		}
+		long[] table = new long[size];
+		int[] w = new int[n];
+		for (int code=0; code<size; code++)
+		{
+			int c = code;
+			for (int i=0; i<n; i++)
+			{
+				w[i] = c%3;
+				c /= 3;
+			}
+			int s1 = 0;
+			int s2 = 0;
+			for (int kind=0; kind<=LINE; kind++)
+			{
+				if ((kinds & (1 << kind)) != 0)
+				{
+					s1 += score(kind,w,1);
+					s2 += score(kind,w,2);
+				}
+			}
+			table[code] = ((long)s1 << 32) + s2;
+		}
+		return table;
+	}
+
+	//Return true if the slots of a are the first slots of b.
+	private static boolean prefix(int[] a, int[] b)
+	{
+		if (a.length > b.length)
+		{
+			return false;
+		}
+		for (int i=0; i<a.length; i++)
+		{
+			if (a[i] != b[i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	//Build a term of n slots from (col,row), stepping (dc,dr) each slot.
+	private static int[] term(int kind, int col, int row, int dc, int dr, int n, int height)
+	{
+		int[] def = new int[n+1];
+		def[0] = kind;
+		for (int i=0; i<n; i++)
+		{
+			def[i+1] = (col+i*dc)*height + row+i*dr;
+		}
+		return def;
+	}
+
+	//Add three more slots to a term.
+	private static int[] with(int[] def, int height, int c1, int r1, int c2, int r2, int c3, int r3)
+	{
+		int[] more = java.util.Arrays.copyOf(def,def.length+3);
+		more[def.length] = c1*height+r1;
+		more[def.length+1] = c2*height+r2;
+		more[def.length+2] = c3*height+r3;
+		return more;
+	}
+
+	//Score of one window for player p. These are the patterns eval() used
+	// to test with if/else chains; now they only fill the tables.
+	// Modifiers: vertical *1, diagonal *2, horizontal *3.
+	private static int score(int kind, int[] w, int p)
+	{
+		int o = 3-p;
+		int a = w[0];
+		int b = w[1];
+		int c = w[2];
+		int d = w.length > 3 ? w[3] : 0;
+		int val = 0;
+		switch (kind)
+		{
+			case H2:
+				if (a==p && b==p && c==0 && d==0) {val += 30;}
+				else if (a==p && c==p && b==0 && d==0) {val += 30;}
+				else if (a==p && d==p && b==0 && c==0) {val += 30;}
+				else if (a==0 && b==p && c==p && d==0) {val += 60;}
+				else if (a==0 && b==p && c==0 && d==p) {val += 30;}
+				else if (a==0 && b==0 && c==p && d==p) {val += 30;}
+				if (a==0 && b==o && c==o && d==0) {val -= 60;}
+				else if (a==o && b==o && c==0 && d==0) {val -= 30;}
+				else if (a==o && b==0 && c==o && d==0) {val -= 30;}
+				else if (a==0 && b==0 && c==o && d==o) {val -= 30;}
+				else if (a==0 && b==o && c==0 && d==o) {val -= 30;}
+				else if (a==o && b==0 && c==0 && d==o) {val -= 30;}
+				break;
+			case V2:
+				if (a==p && b==p && c==0) {val += 10;}
+				if (a==o && b==o && c==0) {val -= 10;}
+				break;
+			case D2U:
+				if (a==p && b==p && c==0 && d==0) {val += 20;}
+				else if (a==p && b==0 && c==0 && d==p) {val += 20;}
+				else if (a==0 && b==0 && c==p && d==p) {val += 20;}
+				else if (a==0 && b==p && c==0 && d==p) {val += 20;}
+				else if (a==p && b==0 && c==p && d==0) {val += 20;}
+				else if (a==0 && b==p && c==p && d==0) {val += 40;}
+				if (a==o && b==o && c==0 && d==0) {val -= 20;}
+				else if (a==0 && b==o && c==o && d==0) {val -= 40;}
+				else if (a==o && b==0 && c==0 && d==o) {val -= 40;}
+				else if (a==o && b==0 && c==o && d==0) {val -= 40;}
+				else if (a==0 && b==o && c==0 && d==o) {val -= 20;}
+				else if (a==0 && b==0 && c==o && d==o) {val -= 20;}
+				break;
+			case D2D:
+				if (a==p && b==p && c==0 && d==0) {val += 20;}
+				else if (a==p && b==0 && c==0 && d==p) {val += 20;}
+				else if (a==0 && b==0 && c==p && d==p) {val += 20;}
+				else if (a==0 && b==p && c==0 && d==p) {val += 20;}
+				else if (a==p && b==0 && c==p && d==0) {val += 20;}
+				else if (a==0 && b==p && c==p && d==0) {val += 100;}
+				if (a==o && b==o && c==0 && d==0) {val -= 20;}
+				else if (a==0 && b==o && c==o && d==0) {val -= 40;}
+				else if (a==0 && b==0 && c==o && d==o) {val -= 20;}
+				else if (a==0 && b==o && c==0 && d==o) {val -= 20;}
+				else if (a==o && b==0 && c==0 && d==o) {val -= 20;}
+				else if (a==o && b==0 && c==o && d==0) {val -= 20;}
+				break;
+			case H3:
+				if (three(a,b,c,d,p)) {val += 3000;}
+				if (three(a,b,c,d,o)) {val -= 3000;}
+				break;
+			case H3S:
+				if (a==0 && b==p && c==p && d==p && w[6]!=0) {val += 15000;}
+				else if (a==p && b==0 && c==p && d==p && w[4]!=0) {val += 15000;}
+				else if (a==p && b==p && c==0 && d==p && w[5]!=0) {val += 15000;}
+				else if (a==p && b==p && c==p && d==0 && w[6]!=0) {val += 15000;}
+				break;
+			case H3B:
+				if (three(a,b,c,d,p)) {val += 15000;}
+				break;
+			case V3:
+				if (a==p && b==p && c==p && d==0) {val += 1000;}
+				if (a==o && b==o && c==o && d==0) {val -= 5000;}
+				break;
+			case D3U:
+			case D3D:
+				if (three(a,b,c,d,p)) {val += 2000;}
+				if (three(a,b,c,d,o)) {val -= 2000;}
+				break;
+			case D3US:
+			case D3DS:
+				if (a==p && b==p && c==p && d==0 && w[4]!=0) {val += 10000;}
+				else if (a==p && b==p && c==0 && d==p && w[5]!=0) {val += 10000;}
+				else if (a==p && b==0 && c==p && d==p && w[6]!=0) {val += 10000;}
+				break;
+			case H5:
+				if (a==0 && b==p && c==p && d==p && w[4]==0) {val += 6000;}
+				if (a==0 && b==o && c==o && d==o && w[4]==0) {val -= 15000;}
+				break;
+			case D5D:
+				//Only the first slot of the three is checked, as in eval().
+				if (a==0 && b==p && c==0 && d==0 && w[4]==0) {val += 4000;}
+				if (a==0 && b==o && c==0 && d==0 && w[4]==0) {val -= 4000;}
+				break;
+			case D5U:
+				if (a==0 && b==p && c==p && d==p && w[4]==0) {val += 10000;}
+				if (a==0 && b==o && c==o && d==o && w[4]==0) {val -= 10000;}
+				break;
+			case LINE:
+				val += line(w,p) - line(w,o);
+				break;
+		}
+		return val;
+	}
+
+	//Score of a line that only x has checkers in: 10 for 2 of them,
+	// 5 times more for each more, and 3000 when one more would win.
+	private static int line(int[] w, int x)
+	{
+		int n = 0;
+		for (int i=0; i<w.length; i++)
+		{
+			if (w[i] == x)
+			{
+				n++;
+			}
+			else if (w[i] != 0)
+			{
+				return 0;
+			}
+		}
+		if (n == w.length-1)
+		{
+			return 3000;
+		}
+		int val = 0;
+		for (int i=2; i<=n; i++)
+		{
+			val = val == 0 ? 10 : val*5;
+		}
+		return val;
+	}
+
+	//Return true if x holds 3 of the 4 slots and the fourth is empty.
+	private static boolean three(int a, int b, int c, int d, int x)
+	{
+		return (a==0 && b==x && c==x && d==x)
+			|| (a==x && b==0 && c==x && d==x)
+			|| (a==x && b==x && c==0 && d==x)
+			|| (a==x && b==x && c==x && d==0);
+	}
+}
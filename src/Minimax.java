@@ -18,43 +18,243 @@ import java.util.*;
 //Create Minimax object from root node
 public class Minimax
 {
-	private int[][] grid = new int[7][6];
+	//The grid to search, computer (player 2) to move.
+	private Position start;
+	private int width;
+	private int height;
+	private int connect = ConnectFourModel.CONNECT;
 	private int maxDepth;
+	private int searchDepth;
+	private int depthReached;
+	//Nodes this thread searched in the try that completed that depth.
+	private long depthNodes;
+	private int rootMove;
+	private long timeLimit;
+	private long deadline;
+	private boolean aborted;
+	private volatile boolean stopped;
+	private volatile Solver solver;
+	private int threads = 1;
+	private int helper;
+	private Progress progress;
+	private OpeningBook book;
+	private EndgameDatabase endgame;
+	private int rootEmpty;
+	private int rootScore;
+	private int score;
+	private long nodes;
+	private TranspositionTable table;
+	private MoveOrder order;
+	private Evaluator evaluator;
+	//The position being searched; moves are played and taken back on it.
+	private ConnectFourModel pos;
+	private long cutoffs;
+	private long firstCutoffs;
+	//Principal variation search and aspiration windows, or plain alpha-beta.
+	private boolean principalVariation = true;
+	private long researches;
+	private long windowMisses;
+	private long researchNodes;
+	//How many re-searches the current node is inside of.
+	private int researching;
+	private long leaves;
+	private long probes;
+	private long hits;
+	private SearchStats stats;
+
+	//Told about each completed iteration of a search.
+	public interface Progress
+	{
+		void iterationDone(int depth, int col);
+	}
+
+	//A maxDepth this high reaches the end of any game, so the position is
+	// solved exactly with Solver instead of searched.
+	public static final int PERFECT = 42;
+
+	//Bounds wider than any score negamax can return.
+	private static final int INFINITY = 1000000000;
+
+	//Slots in the transposition table made for each search: 2^16.
+	private static final int TABLE_BITS = 16;
+
+	//Half the width of the first aspiration window, and how much wider
+	// each next try is. Past WINDOW_MAX the missed side is left open.
+	private static final int WINDOW = 25;
+	private static final int WINDOW_GROWTH = 4;
+	private static final int WINDOW_MAX = 100000;
 
 	//Copy grid from given game grid, set max depth;
 	// If maxDepth is set higher, game is harder
 	public Minimax(int[][] game,int depth)
 	{
-    	grid = copyGrid(game);
+		this(game,depth,new TranspositionTable(TABLE_BITS));
+	}
+
+	//Same, but search with the given transposition table.
+	// The table is cleared at the start of every search.
+	// The grid may have any number of cols and rows.
+	public Minimax(int[][] game,int depth,TranspositionTable tt)
+	{
+		this(position(game),depth,tt);
+	}
+
+	//Search the given position, with the computer to move, without
+	// copying it: a Position never changes.
+	public Minimax(Position p,int depth)
+	{
+		this(p,depth,new TranspositionTable(TABLE_BITS));
+	}
+
+	public Minimax(Position p,int depth,TranspositionTable tt)
+	{
+    	width = p.getWidth();
+    	height = p.getHeight();
+    	connect = p.getConnect();
     	maxDepth = depth;
+    	table = tt;
+    	order = new MoveOrder(width,width*height+1);
+    	evaluator = new Evaluator(width,height,connect);
+    	pos = new ConnectFourModel(p);
+    	pos.setPlayer(2);
+    	start = pos.getPosition();
 	}
 
-	//Function to copy grid.
-	private int[][] copyGrid(int[][]copy)
+	//Play with n in a row to win instead of 4. The opening moves, the
+	// book, the endgame database and Solver only know 4 in a row on the
+	// 7*6 grid; any other game is always searched.
+	public void setConnect(int n)
 	{
-		int[][] newgrid = new int [7][6];
-		for (int row =0; row<6; row++)
-    	{
-    		for (int col=0; col<7; col++)
-    		{
-    			newgrid[col][row]=copy[col][row];
-    		}
-    	}
-    	return newgrid;
+		connect = n;
+		evaluator = new Evaluator(width,height,connect);
+		pos = new ConnectFourModel(width,height,connect);
+		pos.setGrid(start.getGrid(),2);
+		start = pos.getPosition();
+	}
+
+	//Search for at most the given number of milliseconds instead of to a
+	// fixed depth; maxDepth still caps how deep the search goes. PERFECT
+	// then only plays Solver's column if it solves the grid in half the
+	// time, and otherwise searches for the rest of it.
+	public void setTimeLimit(long millis)
+	{
+		timeLimit = millis;
+	}
+
+	//Search with n threads sharing the transposition table (Lazy SMP).
+	// The extra threads only fill the table; the move is this thread's.
+	public void setThreads(int n)
+	{
+		threads = n;
+	}
+
+	//Stop a running search from another thread. calcValue() returns the
+	// best column found so far, or -1 if no iteration had completed.
+	// Only that search is stopped; if none is running, the next one is,
+	// so a search cancelled before it started returns at once.
+	public void stop()
+	{
+		stopped = true;
+		Solver s = solver;
+		if (s != null)
+		{
+			s.stop();
+		}
+	}
+
+	//Report every completed iteration to p, from the searching thread.
+	public void setProgress(Progress p)
+	{
+		progress = p;
+	}
+
+	//Look positions up in the given book before searching them.
+	// The book is only used if it was searched exactly maxDepth deep, so
+	// each difficulty plays as its own search would; a book solved to the
+	// end of the game is also used for PERFECT and deeper.
+	public void setBook(OpeningBook b)
+	{
+		book = b;
+	}
+
+	//Score leaves found in the given endgame database by their solved
+	// result instead of eval().
+	public void setEndgame(EndgameDatabase db)
+	{
+		endgame = db;
+	}
+
+	//Search columns in the order chosen by the given MoveOrder.
+	public void setMoveOrder(MoveOrder mo)
+	{
+		order = mo;
+	}
+
+	//Search with null windows and aspiration windows (on by default), or,
+	// if off, every move with the whole window, as plain alpha-beta; the
+	// column and score are the same either way.
+	public void setPrincipalVariation(boolean on)
+	{
+		principalVariation = on;
+	}
+
+	//Function to copy grid, 4 in a row to win, computer to move.
+	private static Position position(int[][] game)
+	{
+		ConnectFourModel model = new ConnectFourModel(game.length,game[0].length,
+			ConnectFourModel.CONNECT);
+		model.setGrid(game,2);
+		return model.getPosition();
 	}
 
 	//Return col value that the computer wants.
+	// Statistics of the search are kept for getStats().
 	public int calcValue()
 	{
+		long start = System.nanoTime();
+		nodes = 0;
+		leaves = 0;
+		probes = 0;
+		hits = 0;
+		cutoffs = 0;
+		firstCutoffs = 0;
+		researches = 0;
+		windowMisses = 0;
+		researchNodes = 0;
+		depthReached = 0;
+		depthNodes = 0;
+		int c = choose();
+		//The stop, if any, was for this search.
+		stopped = false;
+		solver = null;
+		stats = new SearchStats(nodes,leaves,System.nanoTime() - start,depthReached,
+			depthNodes,probes,hits,cutoffs,firstCutoffs,researches,windowMisses,researchNodes);
+		return c;
+	}
+
+	//Choose the column: from the opening moves, the book, the solver or
+	// the search.
+	private int choose()
+	{
+		if (!standard())
+		{
+			return searchAll();
+		}
+
+		//Looking ahead to the end of the game is solving it.
+		if (maxDepth >= PERFECT)
+		{
+			return solve();
+		}
 		
 		// if player's first turn was col3, return  col2.
 		// Do this by looking at the board.
 		int count = 0;
-		for (int row =0; row<6; row++)
+		for (int row =0; row<height; row++)
     	{
-    		for (int col=0; col<7; col++)
+    		for (int col=0; col<width; col++)
     		{
-    			if (grid[col][row]==1)
+    			if (start.getBoardSlot(col,row)==1)
     			{
     				count++;
     			}
@@ -62,11 +262,11 @@ public class Minimax
     	}
 		if (count ==1)
 		{
-			if (grid[2][5]==1)
+			if (start.getBoardSlot(2,5)==1)
 			{
 				return 4;
 			}
-			else if (grid[4][5]==1)
+			else if (start.getBoardSlot(4,5)==1)
 			{
 				return 2;
 			}
@@ -82,23 +282,399 @@ public class Minimax
 		
 
 
+		int c = bookMove();
+		if (c != -1)
+		{
+			return c;
+		}
+
 		// If not first turn, return negamax
-		return negamax(grid,-100000000,0,1);
+		//The rest of the game fits within the search's horizon, so solve
+		// it exactly instead: the scores are exact rather than eval()'s,
+		// and proving the result visits far fewer positions. With a time
+		// limit, a grid Solver does not solve in time is searched instead.
+		int empty = empty();
+		if (empty <= maxDepth)
+		{
+			table.clear();
+			order.clear();
+			if (timeLimit > 0)
+			{
+				return solveInTime(new Solver(table));
+			}
+			return solveWith(new Solver(table));
+		}
+		return searchAll();
 	}
-	
-	
-	
+
+	//Return true if the game is 4 in a row on the 7*6 grid.
+	private boolean standard()
+	{
+		return width == ConnectFourModel.WIDTH && height == ConnectFourModel.HEIGHT
+			&& connect == ConnectFourModel.CONNECT;
+	}
+
+	//Return the number of empty slots of the grid.
+	private int empty()
+	{
+		return width*height - start.getMoves();
+	}
+
+	//Search the grid, with helper threads if asked for.
+	private int searchAll()
+	{
+		return searchAll(timeLimit);
+	}
+
+	//Same, but for at most the given number of milliseconds, if above 0.
+	private int searchAll(long millis)
+	{
+		table.clear();
+		order.clear();
+		int empty = empty();
+
+		deadline = 0;
+		if (millis > 0)
+		{
+			deadline = System.currentTimeMillis() + millis;
+		}
+
+		//Helper threads search the same position on the shared table,
+		// starting from other columns so that they fill in different parts
+		// of the tree; this thread then finds much of its work done.
+		Minimax[] helpers = new Minimax[threads-1];
+		Thread[] workers = new Thread[threads-1];
+		for (int i=0; i<helpers.length; i++)
+		{
+			final Minimax h = new Minimax(start,maxDepth,table);
+			h.principalVariation = principalVariation;
+			final long key = start.getKey();
+			final int e = empty;
+			h.helper = i+1;
+			helpers[i] = h;
+			workers[i] = new Thread(new Runnable()
+			{
+				public void run()
+				{
+					h.search(key,e);
+				}
+			});
+			workers[i].start();
+		}
+
+		int bestPath = search(start.getKey(),empty);
+
+		for (int i=0; i<helpers.length; i++)
+		{
+			helpers[i].stop();
+			try
+			{
+				workers[i].join();
+			}
+			catch (InterruptedException ie)
+			{
+				Thread.currentThread().interrupt();
+			}
+			nodes += helpers[i].nodes;
+			leaves += helpers[i].leaves;
+			probes += helpers[i].probes;
+			hits += helpers[i].hits;
+			cutoffs += helpers[i].cutoffs;
+			firstCutoffs += helpers[i].firstCutoffs;
+			researches += helpers[i].researches;
+			windowMisses += helpers[i].windowMisses;
+			researchNodes += helpers[i].researchNodes;
+		}
+		return bestPath;
+	}
+
+	//Return the book's column for the grid, or -1 if the grid is not in
+	// the book or the book was not searched to maxDepth.
+	private int bookMove()
+	{
+		if (book == null || !standard())
+		{
+			return -1;
+		}
+		if (book.getDepth() != maxDepth
+			&& (maxDepth < PERFECT || book.getDepth() < PERFECT))
+		{
+			return -1;
+		}
+		int c = book.move(start);
+		if (c != -1)
+		{
+			score = book.score(start);
+		}
+		return c;
+	}
+
+	//Return the column Solver finds best, scored as Solver scores it.
+	// The empty grid is not solved; that takes minutes, and the centre
+	// is known to be the only first move that wins. With a time limit
+	// Solver only gets part of it, as in solveInTime().
+	private int solve()
+	{
+		int c = bookMove();
+		if (c != -1)
+		{
+			return c;
+		}
+		if (start.getMoves() == 0)
+		{
+			return 3;
+		}
+		if (timeLimit > 0)
+		{
+			return solveInTime(new Solver());
+		}
+		return solveWith(new Solver());
+	}
+
+	//Return the column s finds best if it solves the grid within half the
+	// time limit, or else the column searchAll() finds in the time left;
+	// a solve cut short has no column to show for its work.
+	private int solveInTime(Solver s)
+	{
+		long begin = System.currentTimeMillis();
+		s.setDeadline(begin + Math.max(1,timeLimit/2));
+		int c = solveWith(s);
+		if (c != -1 || stopped)
+		{
+			return c;
+		}
+		solver = null;
+		long left = timeLimit - (System.currentTimeMillis() - begin);
+		return searchAll(Math.max(1,left));
+	}
+
+	//Return the column s finds best, or -1 if stopped or past its deadline.
+	// A solved grid counts as searched to the end of the game, reported
+	// as one iteration.
+	private int solveWith(Solver s)
+	{
+		solver = s;
+		if (stopped)
+		{
+			s.stop();
+		}
+		int c = s.bestMove(start.getGrid(),2);
+		score = s.getScore();
+		nodes = s.getNodes();
+		if (c != -1)
+		{
+			depthReached = empty();
+			depthNodes = nodes;
+			if (progress != null)
+			{
+				progress.iterationDone(depthReached,c);
+			}
+		}
+		return c;
+	}
+
+	//Iterative deepening: search 2, 4, 6... plies until maxDepth or, with a
+	// time limit, until time runs out. Leaves are scored with the computer
+	// to move, so depths stay even like the fixed difficulties.
+	// Each iteration tries the previous iteration's best column first,
+	// and with principal variation search looks for a score near the
+	// previous one first: if the score is outside that window, the window
+	// is widened on that side and the iteration searched again.
+	private int search(long key, int empty)
+	{
+		aborted = false;
+		rootEmpty = empty;
+		int bestPath = -1;
+		rootMove = -1;
+		depthReached = 0;
+		for (int d = Math.min(2,maxDepth); ; d = Math.min(d+2,maxDepth))
+		{
+			searchDepth = d;
+			int alpha = -INFINITY;
+			int beta = INFINITY;
+			int window = WINDOW;
+			if (principalVariation && depthReached > 0)
+			{
+				alpha = score - window;
+				beta = score + window;
+			}
+			int c;
+			long tried;
+			while (true)
+			{
+				long before = nodes;
+				long researchedBefore = researchNodes;
+				pos.setPosition(start);
+				evaluator.set(start);
+				c = negamax(alpha,beta,0,1);
+				tried = nodes - before;
+				if (aborted || (rootScore > alpha && rootScore < beta))
+				{
+					break;
+				}
+				//All of a missed try is searched again.
+				windowMisses++;
+				researchNodes = researchedBefore + nodes - before;
+				window *= WINDOW_GROWTH;
+				if (rootScore <= alpha)
+				{
+					alpha = window > WINDOW_MAX ? -INFINITY : score - window;
+				}
+				else
+				{
+					beta = window > WINDOW_MAX ? INFINITY : score + window;
+				}
+			}
+			if (aborted)
+			{
+				break;
+			}
+			bestPath = c;
+			rootMove = c;
+			score = rootScore;
+			depthReached = d;
+			depthNodes = tried;
+			if (progress != null && helper == 0)
+			{
+				progress.iterationDone(d,c);
+			}
+			//Deeper searches cannot see past the end of the game.
+			if (d == maxDepth || d >= empty)
+			{
+				break;
+			}
+		}
+		return bestPath;
+	}
+
+	//Return the depth of the last completed iteration of the last search.
+	public int getDepthReached()
+	{
+		return depthReached;
+	}
+
+	//Return the score of the column chosen by the last search; higher is
+	// better for the computer.
+	public int getScore()
+	{
+		return score;
+	}
+
+	//Return the statistics of the last calcValue().
+	public SearchStats getStats()
+	{
+		return stats;
+	}
+
+	//Return the number of nodes visited by the last search.
+	public long getNodes()
+	{
+		return nodes;
+	}
+
+	//Return the number of beta cutoffs in the last search.
+	public long getCutoffs()
+	{
+		return cutoffs;
+	}
+
+	//Return the share of beta cutoffs caused by the first move searched.
+	// Near 1 means the move ordering almost always finds the refutation first.
+	public double getFirstMoveCutoffRate()
+	{
+		if (cutoffs == 0)
+		{
+			return 0;
+		}
+		return (double)firstCutoffs/cutoffs;
+	}
+
+
 
 	//Recursively calls itself and returns the best col that computer should choose.
-	private int negamax(int[][] game, int alpha, int depth, int color)
+	// Fail-soft alpha-beta: a value <= alpha is an upper bound, a value >= beta
+	// is a lower bound, anything in between is exact.
+	// Principal variation search: after the first move, which the ordering
+	// makes the likely best, each move is only tested with a null window to
+	// show it is no better; one that is better is searched again in full.
+	// Searches pos, playing each move on it and taking it back afterwards,
+	// so nothing is allocated per node.
+	// Returns 0 at once when stopped or past the time limit; the caller
+	// discards the iteration. The time limit never cuts the first iteration,
+	// so a timed search always has a move.
+	private int negamax(int alpha, int beta, int depth, int color)
 	{
-		
-		
+		nodes++;
+		if ((nodes & 1023) == 0)
+		{
+			if (stopped || (deadline != 0 && depthReached > 0
+				&& System.currentTimeMillis() >= deadline))
+			{
+				aborted = true;
+			}
+		}
+		if (aborted)
+		{
+			return 0;
+		}
+
+		//A position already searched to this depth needs no search if its
+		// stored score is exact or a bound outside the window. Otherwise its
+		// best move is still worth trying first. Entries searched deeper (by
+		// a helper thread already on the next iteration) are not used for
+		// scores, so the result matches a single-threaded search.
+		//A position and its mirror image share one entry. Its score only
+		// holds for the one it was searched for, as eval() is not mirror
+		// symmetric, but its best column mirrors to a good first try.
+		long key = pos.getKey();
+		long mirrorKey = pos.getMirrorKey();
+		boolean mirrored = mirrorKey < key;
+		if (mirrored)
+		{
+			key = mirrorKey;
+		}
+		long entry = table.probe(key);
+		probes++;
+		if (entry != 0)
+		{
+			hits++;
+		}
+		int ttMove = -1;
+		if (depth == 0)
+		{
+			ttMove = rootMove;
+			if (helper > 0)
+			{
+				ttMove = MoveOrder.centerOut(width)[helper % width];
+			}
+		}
+		else if (entry != 0)
+		{
+			ttMove = TranspositionTable.move(entry);
+			boolean same = TranspositionTable.mirrored(entry) == mirrored;
+			if (!same && ttMove != -1)
+			{
+				ttMove = width-1-ttMove;
+			}
+			if (same && TranspositionTable.depth(entry) == searchDepth-depth)
+			{
+				int score = TranspositionTable.score(entry);
+				int bound = TranspositionTable.bound(entry);
+				if (bound == TranspositionTable.EXACT
+					|| (bound == TranspositionTable.LOWER && score >= beta)
+					|| (bound == TranspositionTable.UPPER && score <= alpha))
+				{
+					return score;
+				}
+			}
+		}
+		int alphaOrig = alpha;
+
 		int bestPath = 0;
-		int bestValue = alpha;
+		int bestValue = -100000000;
 		int player;
-		
-		int[][] newGrid = copyGrid(game);
+		long wins;
+		long safe = 0;
 
 		if (color == 1)
 		{
@@ -108,51 +684,98 @@ public class Minimax
 		{
 			player = 1;
 		}
-		ConnectFourModel cfm = new ConnectFourModel();
-		cfm.setGrid(newGrid,player);
 
 		// Determine if game is over in current state;
-		// return 1000000 if comp win; else return -1000000
-		if (cfm.win())
+		//The player who just moved has won, so the player to move has
+		// lost, whichever of the two the computer is.
+		if (pos.win())
 		{
-			if(cfm.getPlayer()== player)
-			{bestValue = color*(100000000-depth);}
-			else
-			{bestValue = color*(-100000000+depth);}
+			bestValue = -(100000000-depth);
 		}
 		//Determine if game is a draw
 
-		else if(cfm.full()==true&&cfm.win()==false)
+		else if(pos.full())
 		{
 			bestValue = 0;
 		}
 		//Determine pathValue using eval() if depth is reached.
-		else if (depth==maxDepth) 
+		else if (depth==searchDepth) 
 		{ 
-			int mid = (eval(newGrid,player));
-			if (mid!=0)
+			int known = EndgameDatabase.UNKNOWN;
+			if (endgame != null && rootEmpty - depth <= endgame.getMaxEmpty() && standard())
+			{
+				known = endgame.probe(pos);
+			}
+			if (known != EndgameDatabase.UNKNOWN)
 			{
-				bestValue = (color*(mid-depth));
+				//A solved win, for the player to move, is worth less than a
+				// win the search has seen but more than any eval() score.
+				bestValue = (known - EndgameDatabase.DRAW)*(100000000-PERFECT-depth);
 			}
 			else
 			{
-				bestValue = mid;
+				leaves++;
+				//The evaluator has followed every move down to this leaf,
+				// so it already holds eval(grid,player).
+				int mid = evaluator.score(player);
+				if (mid!=0)
+				{
+					bestValue = (color*(mid-depth));
+				}
+				else
+				{
+					bestValue = mid;
+				}
 			}
+			table.store(key,0,TranspositionTable.EXACT,bestValue,-1,mirrored);
 		}
 
 
 
+		//The player to move wins at once: nothing else scores as high, and
+		// the rightmost such column is the one the full search chose.
+		else if ((wins = pos.winningColumns()) != 0)
+		{
+			bestPath = 63 - Long.numberOfLeadingZeros(wins);
+			bestValue = 100000000-(depth+1);
+			table.store(key,searchDepth-depth,TranspositionTable.EXACT,bestValue,bestPath,mirrored);
+		}
+
+		//Every move lets the other player win at once, which the search
+		// sees if it goes two plies deeper, so all moves score that loss;
+		// the full search chose the rightmost.
+		else if (depth+1 < searchDepth && (safe = pos.nonLosingColumns()) == 0)
+		{
+			bestPath = 63 - Long.numberOfLeadingZeros(pos.playableColumns());
+			bestValue = -(100000000-(depth+2));
+			table.store(key,searchDepth-depth,TranspositionTable.EXACT,bestValue,bestPath,mirrored);
+		}
+
 		else
 		{
+			//Moves that let the other player win at once score lower than
+			// any other, so only the others are searched: if the other
+			// player threatens to win, the forced block is the only one.
+			long skip = 0;
+			if (depth+1 < searchDepth)
+			{
+				skip = ~safe;
+			}
+
 			//Generate moves for each col and find the
 			// best score from each of the generated moves.
-			for(int c=0;c<7;c++) 
+			int[] moves = order.order(depth,ttMove);
+			int tried = 0;
+			for(int i=0;i<moves.length;i++) 
 			{
+				int c = moves[i];
+				if ((skip >>> c & 1) != 0)
+				{
+					continue;
+				}
 
-				//Create a cfm for this column and attempt to drop.
-				ConnectFourModel newcfm = new ConnectFourModel();
-				newcfm.setGrid(newGrid,player);
-				int r = newcfm.drop(c);
+				//Attempt to drop in this column.
+				int r = pos.drop(c);
 
 				//Recursive call the generated game grid and compare the current value to move value
 				// If move is higher, make it the new current value.
@@ -160,27 +783,81 @@ public class Minimax
 				//If drop is successful
 				if (r!=-1)
 				{
-					int[][] nGrid = new int[7][6];
-
-
-					// Only if depth is < maxDepth recursive call
-					if (depth < maxDepth)
+					tried++;
+
+					//At the root only scores that tie or beat the best so far matter,
+					// so search just below it: a tie is then exact and the
+					// rightmost tied column is chosen, as the full search did.
+					// Scores below the aspiration window fail low anyway.
+					int lower = alpha;
+					if (depth == 0)
 					{
-					nGrid = copyGrid(newGrid);
-					nGrid[c][r] = player;
-					int v = -negamax(nGrid,-100000000,depth+1,color*-1); 
-					if (v >= bestValue)
+						lower = Math.max(alphaOrig,bestValue-1);
+					}
+					evaluator.play(c,r,player);
+					int v;
+					if (tried == 1 || !principalVariation)
+					{
+						v = -negamax(-beta,-lower,depth+1,color*-1);
+					}
+					else
+					{
+						v = -negamax(-lower-1,-lower,depth+1,color*-1);
+						if (v > lower && v < beta && !aborted)
+						{
+							researches++;
+							long before = nodes;
+							researching++;
+							v = -negamax(-beta,-lower,depth+1,color*-1);
+							if (--researching == 0)
+							{
+								researchNodes += nodes - before;
+							}
+						}
+					}
+					evaluator.undo(c,r,player);
+					pos.undo(c);
+					if (aborted)
+					{
+						return 0;
+					}
+					if (v > bestValue || (v == bestValue && c > bestPath))
 					{
 						bestPath = c;
 						bestValue = v;
 					}
+					if (bestValue > alpha)
+					{
+						alpha = bestValue;
+					}
+					if (alpha >= beta)
+					{
+						cutoffs++;
+						if (tried == 1)
+						{
+							firstCutoffs++;
+						}
+						order.cutoff(c,depth,searchDepth-depth);
+						break;
 					}
 				}
 			}
+
+			int bound = TranspositionTable.EXACT;
+			if (bestValue <= alphaOrig)
+			{
+				bound = TranspositionTable.UPPER;
+			}
+			else if (bestValue >= beta)
+			{
+				bound = TranspositionTable.LOWER;
+			}
+			table.store(key,searchDepth-depth,bound,bestValue,bestPath,mirrored);
 		}
 		if (depth==0)
 		{
 			//System.out.println("Turn end");
+			rootScore = bestValue;
 			return bestPath;
 		}
 		else
@@ -204,754 +881,10 @@ public class Minimax
 	// Vertical = *1
 	// Diagonal = *2
 	// Horizontal = *3
-	private int eval(int[][] board,int player)
+	// The patterns are kept as lookup tables by Evaluator; see there.
+	public static int eval(int[][] board,int player)
 	{
-		int v = 1;
-		int d = 2;
-		int h = 3;
-
-		int twoIn = 10;
-		int threeIn = 1000;
-		
-		int reverseTwoIn = 10;
-		int reverseThreeIn = 1000;
-
-		int val = 0;		
-		
-		//Check for horizontal 2-in-a-row.
-    	for (int row=0;row<6;row++)
-    	{
-    		for (int col = 0;col<4;col++)
-    		{
-    			//(xx00)
-    			if (board[col][row] == player &&
-    				board[col][row] == board[col+1][row] &&
-    				board[col+2][row] == 0 &&
-    				board[col+3][row] == 0)
-    				{
-    					val+= twoIn*h;
-    				}
-    			//(x0x0)
-    			else if (board[col][row] == player &&
-    				board[col+2][row] == player &&
-    				board[col+1][row] == 0 &&
-    				board[col+3][row] == 0)
-    				{
-    					val+= twoIn*h;
-    				}
-    			//(x00x)
-    			else if (board[col][row] == player &&
-    				board[col+3][row] == player &&
-    				board[col+1][row] == 0 &&
-    				board[col+2][row] == 0)
-    				{
-    					val+= twoIn*h;
-    				}
-    			//(0xx0)
-    			else if (board[col][row] == 0 &&
-    				board[col+1][row] == player &&
-    				board[col+2][row] == player &&
-    				board[col+3][row] == 0)
-    				{
-    					val+= 2*twoIn*h;
-    				}
-    			//(0x0x)
-    			else if (board[col][row] == 0 &&
-    				board[col+1][row] == player &&
-    				board[col+2][row] == 0 &&
-    				board[col+3][row] == player)
-    				{
-    					val+= twoIn*h;
-    				}
-    			//(00xx)
-    			else if (board[col][row] == 0 &&
-    				board[col][row] == board[col+1][row] &&
-    				board[col+2][row] == player &&
-    				board[col+3][row] == player)
-    				{
-    					val+= twoIn*h;
-    				}
-			       				   			    			
-    		}
-    	}
-
-    	
-    	//    ո 2 in a row check
-    	for (int row=0;row<6;row++)
-    	{
-    		for (int col = 0;col<4;col++)
-    		{
-    			//(xx00)
-    			if (board[col][row] == 0 &&
-   					 	 board[col+1][row] == 3-player &&
-   					 	 board[col+2][row] == 3-player &&
-   					 	 board[col+3][row] == 0
-   					){val-= 2*reverseTwoIn*h;}
-    			else if (board[col][row] == 3-player &&
-  					 	 board[col+1][row] == 3-player &&
-  					 	 board[col+2][row] == 0 &&
-  					 	 board[col+3][row] == 0
-   					){val-= reverseTwoIn*h;}
-    			else if (board[col][row] == 3-player &&
- 					 	 board[col+1][row] == 0 &&
- 					 	 board[col+2][row] == 3-player &&
- 					 	 board[col+3][row] == 0
-  					){val-= reverseTwoIn*h;}
-    			else if (board[col][row] == 0 &&
- 					 	 board[col+1][row] == 0 &&
- 					 	 board[col+2][row] == 3-player &&
- 					 	 board[col+3][row] == 3-player
-   					){val-= reverseTwoIn*h;}
-    			else if (board[col][row] == 0 &&
-    					 board[col+1][row] == 3-player &&  
-    					 board[col+2][row] == 0 &&
-     					 board[col+3][row] == 3-player
-     				){val-= reverseTwoIn*h;}
-    			else if (board[col][row] == 3-player &&
-   					 	 board[col+1][row] == 0 &&  
-   					 	 board[col+2][row] == 0 &&
-    					 board[col+3][row] == 3-player
-    				){val-= reverseTwoIn*h;}
-    			
-    			  				       				   			    			
-    		}
-    	}
-    	
-
-    	
-    	
-    	//Check for vertical spaced 2-in-a-row.
-    	// 0
-    	// x
-    	// x
-
-    	for (int row=5;row>1;row--)
-    	{
-    		for (int col = 0;col<7;col++)
-    		{
-    			if (board[col][row] == player &&
-    				board[col][row] == board[col][row-1] &&
-    				board[col][row-2] == 0)
-    				{
-    					val+= twoIn*v;
-    				}
- 
-    			
-    		}
-    	}    	
-    	//   2  
-    	for (int row=5;row>1;row--)
-    	{
-    		for (int col = 0;col<7;col++)
-    		{
-    		
-    			if(board[col][row] == 3-player &&
-    					board[col][row-1] == 3-player &&
-    					board[col][row-2] == 0
-    					){val-= reverseTwoIn*v;}
-    			
-    		}
-    	}
-    	//Check for diagonal spaced 2-in-a-row (/).
-    	//    0     x      x     x      0      0
-    	//   0     0      x     0      x      x
-    	//  x     0      0     x      0      x
-    	// x     x      0     0      x      0
-    	for (int row=5;row>2;row--)
-    	{
-    		for (int col = 0;col<4;col++)
-    		{
-    			if (board[col][row] == player &&
-    				board[col][row] == board[col+1][row-1] &&
-    				board[col+2][row-2] == 0 &&
-    				board[col+3][row-3] == 0)
-    				{
-    					val+= twoIn*d;
-    				}
-    			else if (board[col][row] == player &&
-    				board[col+1][row-1] == 0 &&
-    				board[col+2][row-2] == 0 &&
-    				board[col][row] == board[col+3][row-3])
-    				{
-    					val+= twoIn*d;
-    				}
-    			else if (board[col][row] == 0 &&
-    				board[col+1][row-1] == 0 &&
-    				board[col+2][row-2] == player &&
-    				board[col+3][row-3] == player)
-    				{
-    					val+= twoIn*d;
-    				}
-    			else if (board[col][row] == 0 &&
-    				board[col+1][row-1] == player &&
-    				board[col][row] == board[col+2][row-2] &&
-    				board[col+1][row-1] == board[col+3][row-3])
-    				{
-    					val+= twoIn*d;
-    				}
-    			else if (board[col][row] == player &&
-    				board[col+1][row-1] == 0 &&
-    				board[col][row] == board[col+2][row-2] &&
-    				board[col+1][row-1] == board[col+3][row-3])
-    				{
-    					val+= twoIn*d;
-    				}
-    			else if (board[col][row] == 0 &&
-    				board[col+1][row-1] == player &&
-    				board[col+1][row-1] == board[col+2][row-2] &&
-    				board[col][row] == board[col+3][row-3])
-    				{
-    					val+= 2*twoIn*d;
-    				}
-    					
-    		}
-    	}
-    	//  / 밢 2
-    	for (int row=5;row>2;row--)
-    	{
-    		for (int col = 0;col<4;col++)
-    		{
-    			if (board[col][row] == 3-player &&
-    					 board[col+1][row-1] == 3-player &&
-    					 board[col+2][row-2] == 0 &&
-    					 board[col+3][row-3] == 0){val-= reverseTwoIn*d;}
-   			
-    			else if (board[col][row] == 0 &&
-    					 board[col+1][row-1] == 3-player &&
-    					 board[col+2][row-2] == 3-player &&
-    					 board[col+3][row-3] == 0){val-= 2*reverseTwoIn*d;}
-    			
-    			else if (board[col][row] == 3-player &&
-    					 board[col+1][row-1] == 0 &&
-    					 board[col+2][row-2] == 0 &&
-    					 board[col+3][row-3] == 3-player){val-= 2*reverseTwoIn*d;}
-    			
-    			else if (board[col][row] == 3-player &&
-   					 	 board[col+1][row-1] == 0 &&
-   					 	 board[col+2][row-2] == 3-player &&
-   					 	 board[col+3][row-3] == 0){val-= 2*reverseTwoIn*d;}
-    			
-    			else if (board[col][row] == 0 &&
-   					 	 board[col+1][row-1] == 3-player &&
-   					 	 board[col+2][row-2] == 0&&
-   					 	 board[col+3][row-3] == 3-player){val-= reverseTwoIn*d;}
-    			
-    			else if (board[col][row] == 0 &&
-   					 	 board[col+1][row-1] == 0 &&
-   					 	 board[col+2][row-2] == 3-player &&
-   					 	 board[col+3][row-3] == 3-player){val-= reverseTwoIn*d;}
-   			
-    					
-    		}
-    	}
-    	//Check for diagonal spaced 3-in-a-row (\).
-    	// 0     x     x     x
-    	//  x     0     x     x
-    	//   x     x     0     x
-    	//    x     x     x     0
-    	for (int row=0;row<3;row++)
-    	{
-    		for (int col = 0;col<4;col++)
-    		{
-    			if (board[col][row] == player &&
-    				board[col][row] == board[col+1][row+1] &&
-    				board[col+2][row+2] == 0 &&
-    				board[col+3][row+3] == 0)
-    				{
-    					val+= twoIn*d;
-    				}
-    			else if (board[col][row] == player &&
-    				board[col+1][row+1] == 0 &&
-    				board[col+2][row+2] == 0 &&
-    				board[col][row] == board[col+3][row+3])
-    				{
-    					val+= twoIn*d;
-    				}
-    			else if (board[col][row] == 0 &&
-    				board[col+1][row+1] == 0 &&
-    				board[col+2][row+2] == player &&
-    				board[col+3][row+3] == player)
-    				{
-    					val+= twoIn*d;
-    				}
-    			else if (board[col][row] == 0 &&
-    				board[col+1][row+1] == player &&
-    				board[col][row] == board[col+2][row+2] &&
-    				board[col+1][row+1] == board[col+3][row+3])
-    				{
-    					val+= twoIn*d;
-    				}
-    			else if (board[col][row] == player &&
-    				board[col+1][row+1] == 0 &&
-    				board[col][row] == board[col+2][row+2] &&
-    				board[col+1][row+1] == board[col+3][row+3])
-    				{
-    					val+= twoIn*d;
-    				}
-    			else if (board[col][row] == 0 &&
-    				board[col+1][row+1] == player &&
-    				board[col+1][row+1] == board[col+2][row+2] &&
-    				board[col][row] == board[col+3][row+3])
-    				{
-    					val+= twoIn*5*d;
-    				}
-    		
-    		}
-    	}
-    	//  \ 밢 2
-    	for (int row=0;row<3;row++)
-    	{
-    		for (int col = 0;col<4;col++)
-    		{
-    			if (board[col][row] == 3-player &&
-    					 board[col+1][row+1] == 3-player &&
-    					 board[col+2][row+2] ==0 &&
-    					 board[col+3][row+3] ==0){val-= reverseTwoIn*d;}
-
-    			else if (board[col][row] == 0 &&
-   					 	 board[col+1][row+1] == 3-player &&
-   					 	 board[col+2][row+2] == 3-player &&
-   					 	 board[col+3][row+3] == 0){val-= 2*reverseTwoIn*d;}
-    			else if (board[col][row] == 0 &&
-     					 board[col+1][row+1] == 0 &&
-     					 board[col+2][row+2] == 3-player &&
-     					 board[col+3][row+3] == 3-player){val-= reverseTwoIn*d;}
-   			
-    			else if (board[col][row] == 0 &&
-     					 board[col+1][row+1] == 3-player &&
-     					 board[col+2][row+2] == 0 &&
-     					 board[col+3][row+3] == 3-player){val-= reverseTwoIn*d;}
-    			
-    			else if (board[col][row] == 3-player &&
-    					 board[col+1][row+1] == 0 &&
-    					 board[col+2][row+2] == 0 &&
-    					 board[col+3][row+3] == 3-player){val-= reverseTwoIn*d;}
-    			
-    			else if (board[col][row] == 3-player &&
-    					 board[col+1][row+1] == 0 &&
-    					 board[col+2][row+2] == 3-player &&
-    					 board[col+3][row+3] == 0){val-= reverseTwoIn*d;}
-    		
-    		}
-    	}
-		//Check for horizontal 3-in-a-row.
-    	for (int row=0;row<6;row++)
-    	{
-    		for (int col = 0;col<4;col++)
-    		{
-    			//(xx0x)
-    			if (board[col][row] == player &&
-    				board[col][row] == board[col+1][row] &&
-    				board[col+2][row] == 0 &&
-    				board[col][row] == board[col+3][row])
-    				{
-    					val+= threeIn*h;
-    				}
-    			//(x0xx)
-    			else if (board[col][row] == player &&
-    				board[col+1][row] == 0 &&
-    				board[col][row] == board[col+2][row] &&
-    				board[col][row] == board[col+3][row])
-    				{
-    					val+= threeIn*h;
-    				}
-    			//(0xxx)
-    			else if (board[col][row] == 0 &&
-    				board[col+1][row] == player &&
-    				board[col+1][row] == board[col+2][row] &&
-    				board[col+1][row] == board[col+3][row])
-    				{
-    					val+= threeIn*h;
-    				}
-    			//(xxx0)
-    			else if (board[col][row] == player &&
-    				board[col][row] == board[col+1][row] &&
-    				board[col][row] == board[col+2][row] &&
-    				board[col+3][row] == 0)
-    				{
-    					val+= threeIn*h;
-    				}
-    			
-    		}
-    	}
-    	//   3
-    	for (int row=0;row<6;row++)
-    	{
-    		for (int col = 0;col<4;col++)
-    		{
-    			if(board[col][row] == 0 &&
-    					board[col+1][row] == 3-player &&
-    					board[col+2][row] == 3-player &&
-    					board[col+3][row] == 3-player
-    					){val-= reverseThreeIn*h;}
-    			else if(board[col][row] == 3-player &&
-    					board[col+1][row] == 0 &&
-    					board[col+2][row] == 3-player &&
-    					board[col+3][row] == 3-player
-    					){val-= reverseThreeIn*h;}
-    			else if(board[col][row] == 3-player &&
-    					board[col+1][row] == 3-player &&
-    					board[col+2][row] == 0&&
-    					board[col+3][row] == 3-player
-    					){val-= reverseThreeIn*h;}
-    			else if(board[col][row] == 3-player &&
-    					board[col+1][row] == 3-player &&
-    					board[col+2][row] == 3-player &&
-    					board[col+3][row] == 0
-    					){val-= reverseThreeIn*h;}
-    			
-    		}
-    	}
-    	//  3̰ ٷ   ִ 
-    	for (int row=0;row<5;row++)
-    	{
-    		for (int col = 0;col<4;col++)
-    		{
-    			if(board[col][row] == 0 &&
-    					board[col+1][row] == player &&
-    					board[col+2][row] == player &&
-    					board[col+3][row] == player &&
-    					board[col+3][row+1] != 0
-    					){val+= 5*threeIn*h;}
-    			else if(board[col][row] == player &&
-    					board[col+1][row] == 0 &&
-    					board[col+2][row] == player &&
-    					board[col+3][row] == player &&
-    					board[col+1][row+1] !=0
-    					){val+= 5*threeIn*h;}
-    			else if(board[col][row] == player &&
-    					board[col+1][row] == player &&
-    					board[col+2][row] == 0&&
-    					board[col+3][row] == player &&
-    					board[col+2][row+1]!=0
-    					){val+= 5*threeIn*h;}
-    			else if(board[col][row] == player &&
-    					board[col+1][row] == player &&
-    					board[col+2][row] == player &&
-    					board[col+3][row] == 0 &&
-    					board[col+3][row+1]!=0
-    					){val+= 5*threeIn*h;}
-    			
-    		}
-    	}
-    	//  ٿ  3̰   ִ 
-    	for (int col = 0;col<4;col++)
-		{
-			if(board[col][5] == 0 &&
-					board[col+1][5] == player &&
-					board[col+2][5] == player &&
-					board[col+3][5] == player 					
-					){val+= 5*threeIn*h;}
-			else if(board[col][5] == player &&
-					board[col+1][5] == 0 &&
-					board[col+2][5] == player &&
-					board[col+3][5] == player 
-					){val+= 5*threeIn*h;}
-			else if(board[col][5] == player &&
-					board[col+1][5] == player &&
-					board[col+2][5] == 0&&
-					board[col+3][5] == player 
-					){val+= 5*threeIn*h;}
-			else if(board[col][5] == player &&
-					board[col+1][5] == player &&
-					board[col+2][5] == player &&
-					board[col+3][5] == 0 
-					){val+= 5*threeIn*h;}
-			
-		}
-    	
-
-
-    	//Check for vertical spaced 3-in-a-row.
-    	// 0
-    	// x
-    	// x
-    	// x
-    	for (int row=5;row>2;row--)
-    	{
-    		for (int col = 0;col<7;col++)
-    		{
-    			if (board[col][row] == player &&
-    				board[col][row] == board[col][row-1] &&
-    				board[col][row] == board[col][row-2] &&
-    				board[col][row-3] == 0)
-    				{
-    					val+= threeIn*v;
-    				}
- 
-    		}
-    	}
-    	//  3  
-    	for (int row=5;row>2;row--)
-    	{
-    		for (int col = 0;col<7;col++)
-    		{
-    			if(board[col][row] == 3-player &&
-    					board[col][row-1] == 3-player &&
-    					board[col][row-2] == 3-player &&
-    					board[col][row-3] == 0
-    					){val-= 5*reverseThreeIn*v;}
-    		}
-    	}
-    	//Check for diagonal spaced 3-in-a-row (/).
-    	//    0     x      x     x
-    	//   x     0      x     x
-    	//  x     x      0     x
-    	// x     x      x     0
-    	for (int row=5;row>2;row--)
-    	{
-    		for (int col = 0;col<4;col++)
-    		{
-    			if (board[col][row] == player &&
-    				board[col][row] == board[col+1][row-1] &&
-    				board[col][row] == board[col+2][row-2] &&
-    				board[col+3][row-3] == 0)
-    				{
-    					val+= threeIn*d;
-    				}
-    			else if (board[col][row] == player &&
-    				board[col][row] == board[col+1][row-1] &&
-    				board[col+2][row-2] == 0 &&
-    				board[col][row] == board[col+3][row-3])
-    				{
-    					val+= threeIn*d;
-    				}
-    			else if (board[col][row] == player &&
-    				board[col+1][row-1] == 0 &&
-    				board[col][row] == board[col+2][row-2] &&
-    				board[col][row] == board[col+3][row-3])
-    				{
-    					val+= threeIn*d;
-    				}
-    			else if (board[col][row] == 0 &&
-    				board[col+1][row-1] == player &&
-    				board[col+1][row-1] == board[col+2][row-2] &&
-    				board[col+1][row-1] == board[col+3][row-3])
-    				{
-    					val+= threeIn*d;
-    				}
-    		}
-    	}
-    	//  /밢 3
-    	for (int row=5;row>2;row--)
-    	{
-    		for (int col = 0;col<4;col++)
-    		{
-    			if (board[col][row] == 3-player &&
-    				board[col][row] == board[col+1][row-1] &&
-    				board[col][row] == board[col+2][row-2] &&
-    				board[col+3][row-3] == 0){val-= reverseThreeIn*d;}
-    			else if (board[col][row] == 3-player &&
-    				board[col][row] == board[col+1][row-1] &&
-    				board[col+2][row-2] == 0 &&
-    				board[col][row] == board[col+3][row-3]){val-= reverseThreeIn*d;}
-    			else if (board[col][row] == 3-player &&
-    				board[col+1][row-1] == 0 &&
-    				board[col][row] == board[col+2][row-2] &&
-    				board[col][row] == board[col+3][row-3]){val-= reverseThreeIn*d;}
-    			else if (board[col][row] == 0 &&
-    				board[col+1][row-1] == 3-player &&
-    				board[col+1][row-1] == board[col+2][row-2] &&
-    				board[col+1][row-1] == board[col+3][row-3]){val-= reverseThreeIn*d;}
-    		}
-    	}
-    	
-    	//  (/) 밢 3 Ǿ ְ, ٷ   ִ 
-    	for (int row=5;row>2;row--)
-    	{
-    		for (int col = 0;col<4;col++){
-    			if (board[col][row] == player &&
-        			board[col+1][row-1] == player &&
-        			board[col+2][row-2] == player &&
-        			board[col+3][row-3] == 0 &&
-        			board[col+3][row-2] !=0){val+= 5*threeIn*d;}
-    			else if (board[col][row] == player &&
-            			 board[col+1][row-1] == player &&
-            			 board[col+2][row-2] == 0 &&
-            			 board[col+3][row-3] == player &&
-            			 board[col+2][row-1] !=0){val+= 5*threeIn*d;}
-    			else if (board[col][row] == player &&
-           			 board[col+1][row-1] == 0 &&
-           			 board[col+2][row-2] == player &&
-           			 board[col+3][row-3] == player &&
-           			 board[col+1][row] !=0){val+= 5*threeIn*d;}
-    			
-    		}
-    	}
-    	//Check for diagonal spaced 3-in-a-row (\).
-    	// 0     x     x     x
-    	//  x     0     x     x
-    	//   x     x     0     x
-    	//    x     x     x     0
-    	for (int row=0;row<3;row++)
-    	{
-    		for (int col = 0;col<4;col++)
-    		{
-    			if (board[col][row] == 0 &&
-    				board[col+1][row+1] == player &&
-    				board[col+1][row+1] == board[col+2][row+2] &&
-    				board[col+1][row+1] == board[col+3][row+3])
-    				{
-    					val+= threeIn*d;
-    				}
-    			else if (board[col][row] == player &&
-    				board[col+1][row+1] == 0 &&
-    				board[col][row] == board[col+2][row+2] &&
-    				board[col][row] == board[col+3][row+3])
-    				{
-    					val+= threeIn*d;
-    				}
-    			else if (board[col][row] == player &&
-    				board[col][row] == board[col+1][row+1] &&
-    				board[col+2][row+2] == 0 &&
-    				board[col][row] == board[col+3][row+3])
-    				{
-    					val+= threeIn*d;
-    				}
-    			else if (board[col][row] == player &&
-    				board[col][row] == board[col+1][row+1] &&
-    				board[col][row] == board[col+2][row+2] &&
-    				board[col+3][row+3] == 0)
-    				{
-    					val+= threeIn*d;
-    				}
-
-    		}
-    	}
-    	//  (\) 밢 3 Ǿ ְ, ٷ   ִ  
-    	for (int row=0;row<3;row++)
-    	{
-    		for (int col = 0;col<4;col++){
-    			if (board[col][row] == player &&
-        			board[col+1][row+1] == player &&
-        			board[col+2][row+2] == player &&
-        			board[col+3][row+3] == 0 &&
-        			board[col+3][row+2] !=0){val+= 5*threeIn*d;}
-    			else if (board[col][row] == player &&
-            			 board[col+1][row+1] == player &&
-            			 board[col+2][row+2] == 0 &&
-            			 board[col+3][row+3] == player &&
-            			 board[col+2][row+1] !=0){val+= 5*threeIn*d;}
-    			else if (board[col][row] == player &&
-           			 board[col+1][row+1] == 0 &&
-           			 board[col+2][row+2] == player &&
-           			 board[col+3][row+3] == player &&
-           			 board[col+1][row] !=0){val+= 5*threeIn*d;}
-    			
-    		}
-    	}
-    	for (int row=0;row<3;row++)
-    	{
-    		for (int col = 0;col<4;col++)
-    		{
-    			if (board[col][row] == 0 &&
-    				board[col+1][row+1] == 3-player &&
-    				board[col+1][row+1] == board[col+2][row+2] &&
-    				board[col+1][row+1] == board[col+3][row+3]){val-= reverseThreeIn*d;}
-    			else if (board[col][row] == 3-player &&
-    				board[col+1][row+1] == 0 &&
-    				board[col][row] == board[col+2][row+2] &&
-    				board[col][row] == board[col+3][row+3]){val-= reverseThreeIn*d;}
-    			else if (board[col][row] == 3-player &&
-    				board[col][row] == board[col+1][row+1] &&
-    				board[col+2][row+2] == 0 &&
-    				board[col][row] == board[col+3][row+3]){val-= reverseThreeIn*d;}
-    			else if (board[col][row] == 3-player &&
-    				board[col][row] == board[col+1][row+1] &&
-    				board[col][row] == board[col+2][row+2] &&
-    				board[col+3][row+3] == 0){val-= reverseThreeIn*d;}
-
-    		}
-    	}
-
-    	//Check for open-ended 3-in-a-row. (0xxx0)
-    	for (int row=0;row<6;row++)
-    	{
-    		for (int col = 0;col<3;col++)
-    		{
-    			//horizontal
-    			if (board[col][row] == 0 &&
-    				board[col+1][row] == player &&
-    				board[col+2][row] == player &&
-    				board[col+3][row] == player &&
-    				board[col][row] == board[col+4][row])
-    				{
-    					val+= 2*threeIn*h;
-    				}
-    			
-    		}
-    	}
-    	//   ո 3
-    	for (int row=0;row<6;row++)
-    	{
-    		for (int col = 0;col<3;col++)
-    		{
-    			//horizontal
-    			if (board[col][row] == 0 &&
-    				board[col+1][row] == 3 - player &&
-        			board[col+2][row] == 3 - player &&
-        			board[col+3][row] == 3 - player &&
-        			board[col][row] == board[col+4][row]){val-= 5*reverseThreeIn*h;}
-    		}
-    	}
-    	for (int row=0;row<2;row++)
-    	{
-    		for (int col = 0;col<3;col++)
-    		{
-    			//diag(\)
-    			if (board[col][row] == 0 &&
-    				board[col+1][row+1] == player &&
-    				board[col][row] == board[col+2][row+2] &&
-    				board[col][row] == board[col+3][row+3] &&
-    				board[col+4][row+4] == 0)
-    				{
-    					val+= 2*threeIn*d;
-    				}
-    		}
-    	}
-    	//  \ 밢  ո 3
-    	for (int row=0;row<2;row++)
-    	{
-    		for (int col = 0;col<3;col++)
-    		{
-    			 if(board[col][row] == 0 &&
-    				board[col+1][row+1] == 3-player &&
-        			board[col][row] == board[col+2][row+2] &&
-        			board[col][row] == board[col+3][row+3] &&
-        			board[col+4][row+4] == 0){val-= 2*reverseThreeIn*d;}
-    		}
-    	}
-    	//diag(/)
-		for (int row=5;row>3;row--)
-    		{
-    			for (int col = 0;col<3;col++)
-    			{
-    				if (board[col][row] == 0 &&
-    					board[col+1][row-1] == player &&
-    					board[col+2][row-2] == player &&
-    					board[col+3][row-3] == player &&
-    					board[col+4][row-4] == 0)
-    					{
-    						val+= 5*threeIn*d;
-    					}
-    			}
-    		}
-		
-		// (/) ո 밢 3
-		for (int row=5;row>3;row--)
-		{
-			for (int col = 0;col<3;col++)
-			{
-				 if(board[col][row] == 0 &&
-					board[col+1][row-1] == 3-player &&
-					board[col+2][row-2] == 3-player &&
-					board[col+3][row-3] == 3-player &&
-					board[col+4][row-4] == 0){val-= 5*reverseThreeIn*d;}
-			}
-		}
-	
-		System.out.println(val);
-    	return val;
+		return Evaluator.eval(board,player);
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+/**
+ * MoveOrder.java
+ *
+ * Decides in which order Minimax tries the columns of a position.
+ * Alpha-beta prunes the most when the best move is searched first, so:
+ *
+ *  1. the best move remembered by the transposition table,
+ *  2. the two killer moves of the ply (moves that caused a cutoff
+ *     at the same ply elsewhere in the tree),
+ *  3. the other columns by their history score (how much search their
+ *     cutoffs have saved at this ply), center columns first on ties.
+ *
+ * Extend this class and hand it to Minimax.setMoveOrder() to try
+ * another ordering.
+ *
+ */
+
+public class MoveOrder
+{
+	//Columns from the center out; the center is usually the best move.
+	protected static final int[] CENTER_OUT = {3,2,4,1,5,0,6};
+
+	//Deepest ply a search can reach on a 7*6 grid.
+	protected static final int MAX_PLY = 43;
+
+	//Columns from the center out and deepest ply, for the grid in use.
+	protected final int[] centerOut;
+	protected final int maxPly;
+
+	private int[][] killers;
+	private int[][] history;
+	private int[][] moves;
+	private int[] score;
+
+	public MoveOrder()
+	{
+		this(CENTER_OUT.length,MAX_PLY);
+	}
+
+	//Order the columns of a grid width columns wide, searched at most
+	// maxPly plies deep.
+	public MoveOrder(int width, int maxPly)
+	{
+		centerOut = width == CENTER_OUT.length ? CENTER_OUT : centerOut(width);
+		this.maxPly = maxPly;
+		killers = new int[maxPly][2];
+		history = new int[maxPly][width];
+		moves = new int[maxPly][width];
+		score = new int[width];
+		clear();
+	}
+
+	//Return the columns of a grid width columns wide from the center out,
+	// the left one first of two as central.
+	public static int[] centerOut(int width)
+	{
+		if (width == CENTER_OUT.length)
+		{
+			return CENTER_OUT.clone();
+		}
+		int[] cols = new int[width];
+		for (int i=0; i<width; i++)
+		{
+			//Columns alternate left and right of the middle.
+			if (width % 2 == 1)
+			{
+				cols[i] = i % 2 == 1 ? width/2 - (i+1)/2 : width/2 + i/2;
+			}
+			else
+			{
+				cols[i] = i % 2 == 0 ? width/2 - 1 - i/2 : width/2 + i/2;
+			}
+		}
+		return cols;
+	}
+
+	//Forget killers and history before a new search.
+	public void clear()
+	{
+		for (int ply=0; ply<maxPly; ply++)
+		{
+			killers[ply][0] = -1;
+			killers[ply][1] = -1;
+			java.util.Arrays.fill(history[ply],0);
+		}
+	}
+
+	//Return the columns in the order to search them at the given ply.
+	// ttMove is the table's best move for the position, or -1.
+	// The returned array is reused by the next call at the same ply.
+	public int[] order(int ply, int ttMove)
+	{
+		int[] list = moves[ply];
+		for (int i=0; i<list.length; i++)
+		{
+			int c = centerOut[i];
+			list[i] = c;
+			if (c == ttMove)
+			{
+				score[c] = Integer.MAX_VALUE;
+			}
+			else if (c == killers[ply][0])
+			{
+				score[c] = Integer.MAX_VALUE-1;
+			}
+			else if (c == killers[ply][1])
+			{
+				score[c] = Integer.MAX_VALUE-2;
+			}
+			else
+			{
+				score[c] = history[ply][c];
+			}
+		}
+		//Insertion sort keeps center-out order among equal scores.
+		for (int i=1; i<list.length; i++)
+		{
+			int c = list[i];
+			int j = i-1;
+			for (; j>=0 && score[list[j]] < score[c]; j--)
+			{
+				list[j+1] = list[j];
+			}
+			list[j+1] = c;
+		}
+		return list;
+	}
+
+	//Record that col caused a beta cutoff at ply with depthLeft plies searched below.
+	public void cutoff(int col, int ply, int depthLeft)
+	{
+		if (killers[ply][0] != col)
+		{
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = col;
+		}
+		history[ply][col] += depthLeft*depthLeft;
+		//Halve the ply's history before it can overflow.
+		if (history[ply][col] > (1 << 30))
+		{
+			for (int c=0; c<score.length; c++)
+			{
+				history[ply][c] /= 2;
+			}
+		}
+	}
+}
@@ -0,0 +1,187 @@
+/**
+ * OpeningBook.java
+ *
+ * Looks up the computer's move in opening positions searched ahead of
+ * time by BookBuilder, instead of searching them during the game.
+ *
+ * The book file is memory-mapped read-only, so several games, or several
+ * JVMs on one machine, share a single copy of it through the page cache.
+ * The file is big-endian:
+ *
+ *   int    MAGIC
+ *   int    depth every position was searched to
+ *   int    number of positions n
+ *   n x    long  position key (ConnectFourModel.getPositionKey()),
+ *                 best column in bits 56-63
+ *          int   score of that column
+ *
+ * Positions are sorted by key, so lookups are a binary search.
+ *
+ * In a book solved to depth Minimax.PERFECT, a position and its mirror
+ * image share one record, under the smaller of their two position keys;
+ * the other is answered with the mirror of its column. A shallower book
+ * stores both: eval() is not mirror symmetric, so the search may play and
+ * score the two differently, and a book must answer as the search would.
+ *
+ */
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class OpeningBook
+{
+	private static final int MAGIC = 0x43344250;
+	private static final int HEADER = 12;
+	private static final int RECORD = 12;
+	private static final long KEY = (1L << 56) - 1;
+
+	private final MappedByteBuffer buffer;
+	private final int depth;
+	private final int count;
+
+	private OpeningBook(MappedByteBuffer buf)
+	{
+		buffer = buf;
+		depth = buf.getInt(4);
+		count = buf.getInt(8);
+	}
+
+	//Map the book file at path.
+	public static OpeningBook open(String path) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(path,"r");
+		try
+		{
+			FileChannel channel = file.getChannel();
+			if (channel.size() < HEADER)
+			{
+				throw new IOException(path + " is not an opening book");
+			}
+			//The mapping stays valid after the file is closed.
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY,0,channel.size());
+			if (buf.getInt(0) != MAGIC
+				|| channel.size() != HEADER + (long)RECORD*buf.getInt(8))
+			{
+				throw new IOException(path + " is not an opening book");
+			}
+			return new OpeningBook(buf);
+		}
+		finally
+		{
+			file.close();
+		}
+	}
+
+	//Write a book of the given positions, which must be sorted by key.
+	public static void write(String path, int depth, long[] keys, int[] moves, int[] scores)
+		throws IOException
+	{
+		DataOutputStream out = new DataOutputStream(
+			new BufferedOutputStream(new FileOutputStream(path)));
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(depth);
+			out.writeInt(keys.length);
+			for (int i=0; i<keys.length; i++)
+			{
+				out.writeLong(keys[i] | ((long)moves[i] << 56));
+				out.writeInt(scores[i]);
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	//Return the depth every position in the book was searched to.
+	public int getDepth()
+	{
+		return depth;
+	}
+
+	//Return the number of positions in the book.
+	public int size()
+	{
+		return count;
+	}
+
+	//Return the best column for the given position, or -1 if it is not in
+	// the book, nor, in a solved book, its mirror image.
+	public int move(Position p)
+	{
+		int col = move(p.getPositionKey());
+		if (col == -1 && depth >= Minimax.PERFECT && !p.isSymmetric())
+		{
+			col = move(p.getMirrorPositionKey());
+			if (col != -1)
+			{
+				col = p.getWidth()-1-col;
+			}
+		}
+		return col;
+	}
+
+	//Return the score of the best column for the given position, or 0 if
+	// it is not in the book, nor, in a solved book, its mirror image.
+	public int score(Position p)
+	{
+		if (find(p.getPositionKey()) >= 0 || depth < Minimax.PERFECT)
+		{
+			return score(p.getPositionKey());
+		}
+		return score(p.getMirrorPositionKey());
+	}
+
+	//Return the best column for the given position key, or -1 if the
+	// position is not in the book.
+	public int move(long key)
+	{
+		int i = find(key);
+		if (i < 0)
+		{
+			return -1;
+		}
+		return (int)(buffer.getLong(HEADER + i*RECORD) >>> 56);
+	}
+
+	//Return the score of the best column for the given position key, or 0
+	// if the position is not in the book.
+	public int score(long key)
+	{
+		int i = find(key);
+		if (i < 0)
+		{
+			return 0;
+		}
+		return buffer.getInt(HEADER + i*RECORD + 8);
+	}
+
+	//Binary search for key; only absolute reads are used, so any number
+	// of threads may look up at once.
+	private int find(long key)
+	{
+		int lo = 0;
+		int hi = count - 1;
+		while (lo <= hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			long k = buffer.getLong(HEADER + mid*RECORD) & KEY;
+			if (k < key)
+			{
+				lo = mid + 1;
+			}
+			else if (k > key)
+			{
+				hi = mid - 1;
+			}
+			else
+			{
+				return mid;
+			}
+		}
+		return -1;
+	}
+}
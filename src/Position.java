@@ -0,0 +1,185 @@
+/**
+ * Position.java
+ *
+ * An unchangeable copy of a ConnectFourModel: the checkers, the player to
+ * move and the keys, as of one moment of the game. It is a few longs, so
+ * making one costs next to nothing, and as it never changes any thread
+ * may read it without locks.
+ *
+ * The model belongs to the thread playing on it (the Swing event thread
+ * in the game). Other threads, such as the engine's, are handed the
+ * model's getPosition() instead of the model or a copied grid.
+ *
+ * On a grid of up to 64 bits the checkers are the model's two bitboards;
+ * a bigger grid keeps a copy of its words per column.
+ *
+ */
+
+public final class Position
+{
+	private final int width;
+	private final int height;
+	private final int connect;
+	private final int player;
+	private final int moves;
+	private final long key;
+	private final long mirrorKey;
+	private final long positionKey;
+	private final long mirrorPositionKey;
+	private final boolean won;
+
+	//The model's words, laid out as in ConnectFourModel. The per-column
+	// words are only set for grids too big for one word, and never change.
+	final long disc1;
+	final long disc2;
+	final long[] cols1;
+	final long[] cols2;
+
+	//Made by ConnectFourModel.getPosition().
+	Position(int width, int height, int connect, int player, int moves, long key, long mirrorKey,
+		long positionKey, long mirrorPositionKey, boolean won,
+		long disc1, long disc2, long[] cols1, long[] cols2)
+	{
+		this.width = width;
+		this.height = height;
+		this.connect = connect;
+		this.player = player;
+		this.moves = moves;
+		this.key = key;
+		this.mirrorKey = mirrorKey;
+		this.positionKey = positionKey;
+		this.mirrorPositionKey = mirrorPositionKey;
+		this.won = won;
+		this.disc1 = disc1;
+		this.disc2 = disc2;
+		this.cols1 = cols1;
+		this.cols2 = cols2;
+	}
+
+	//Return the number of cols, rows and checkers in a row to win.
+	public int getWidth()
+	{
+		return width;
+	}
+
+	public int getHeight()
+	{
+		return height;
+	}
+
+	public int getConnect()
+	{
+		return connect;
+	}
+
+	// Return the player to move.
+	public int getPlayer()
+	{
+		return player;
+	}
+
+	//Return the number of checkers on the grid.
+	public int getMoves()
+	{
+		return moves;
+	}
+
+	//Return the model's getKey(), getMirrorKey(), getPositionKey() and
+	// getMirrorPositionKey().
+	public long getKey()
+	{
+		return key;
+	}
+
+	public long getMirrorKey()
+	{
+		return mirrorKey;
+	}
+
+	public long getPositionKey()
+	{
+		return positionKey;
+	}
+
+	public long getMirrorPositionKey()
+	{
+		return mirrorPositionKey;
+	}
+
+	// Return true if the grid is its own mirror image.
+	public boolean isSymmetric()
+	{
+		return positionKey == mirrorPositionKey;
+	}
+
+	// Return true if a player has won.
+	public boolean win()
+	{
+		return won;
+	}
+
+	// Determine if game board is full.
+	public boolean full()
+	{
+		return moves == width*height;
+	}
+
+	// Return if a slot on the board is empty (0), filled by Player (1), or
+	// filled by Computer (2).
+	public int getBoardSlot(int col, int row)
+	{
+		if (cols1 != null)
+		{
+			int r = height - 1 - row;
+			return (int)(cols1[col] >>> r & 1) | (int)(cols2[col] >>> r & 1) << 1;
+		}
+		int bit = col*(height+1) + height - 1 - row;
+		return (int)(disc1 >>> bit & 1) | (int)(disc2 >>> bit & 1) << 1;
+	}
+
+	//Returns the grid as the model's getGrid() does.
+	public int[][] getGrid()
+	{
+		int[][] grid = new int[width][height];
+		for (int col=0; col<width; col++)
+		{
+			for (int row=0; row<height; row++)
+			{
+				grid[col][row] = getBoardSlot(col,row);
+			}
+		}
+		return grid;
+	}
+
+	public boolean equals(Object o)
+	{
+		if (!(o instanceof Position))
+		{
+			return false;
+		}
+		Position p = (Position)o;
+		return width == p.width && height == p.height && connect == p.connect
+			&& player == p.player && disc1 == p.disc1 && disc2 == p.disc2
+			&& java.util.Arrays.equals(cols1,p.cols1) && java.util.Arrays.equals(cols2,p.cols2);
+	}
+
+	public int hashCode()
+	{
+		return (int)(key ^ (key >>> 32));
+	}
+
+	//Display the grid as the model's toString() does.
+	public String toString()
+	{
+		StringBuilder s = new StringBuilder();
+		for (int row =height-1; row>=0; row--)
+		{
+			for (int col=0; col<width; col++)
+			{
+				s.append(getBoardSlot(col,row));
+			}
+			s.append('\n');
+		}
+		return s.toString();
+	}
+}
@@ -0,0 +1,171 @@
+/**
+ * SearchStats.java
+ *
+ * What one Minimax.calcValue() did: how many positions it visited and
+ * scored, how fast, how deep, and how well its table, move ordering and
+ * search windows worked. Counts include the helper threads of a parallel
+ * search; the branching factor is the searching thread's own.
+ *
+ */
+
+public class SearchStats
+{
+	private final long nodes;
+	private final long leaves;
+	private final long nanos;
+	private final int depth;
+	private final long depthNodes;
+	private final long probes;
+	private final long hits;
+	private final long cutoffs;
+	private final long firstCutoffs;
+	private final long researches;
+	private final long windowMisses;
+	private final long researchNodes;
+
+	public SearchStats(long nodes, long leaves, long nanos, int depth, long depthNodes,
+		long probes, long hits, long cutoffs, long firstCutoffs,
+		long researches, long windowMisses, long researchNodes)
+	{
+		this.nodes = nodes;
+		this.leaves = leaves;
+		this.nanos = nanos;
+		this.depth = depth;
+		this.depthNodes = depthNodes;
+		this.probes = probes;
+		this.hits = hits;
+		this.cutoffs = cutoffs;
+		this.firstCutoffs = firstCutoffs;
+		this.researches = researches;
+		this.windowMisses = windowMisses;
+		this.researchNodes = researchNodes;
+	}
+
+	//Return the number of positions visited.
+	public long getNodes()
+	{
+		return nodes;
+	}
+
+	//Return the number of positions scored by eval() at the search horizon.
+	public long getLeaves()
+	{
+		return leaves;
+	}
+
+	//Return how long the search took, in nanoseconds.
+	public long getNanos()
+	{
+		return nanos;
+	}
+
+	public double getNodesPerSecond()
+	{
+		if (nanos == 0)
+		{
+			return 0;
+		}
+		return nodes * 1e9 / nanos;
+	}
+
+	//Return the depth of the last completed iteration.
+	public int getDepth()
+	{
+		return depth;
+	}
+
+	//Return the number of positions the searching thread visited in the
+	// last completed iteration, in the aspiration window that completed
+	// it; the whole solve if the grid was solved.
+	public long getDepthNodes()
+	{
+		return depthNodes;
+	}
+
+	//Return the effective branching factor: the number of moves that,
+	// searched at every position to the depth reached, would have
+	// visited as many positions as the last completed iteration did.
+	public double getBranchingFactor()
+	{
+		if (depth == 0 || depthNodes == 0)
+		{
+			return 0;
+		}
+		return Math.pow(depthNodes,1.0/depth);
+	}
+
+	//Return the number of transposition table lookups.
+	public long getProbes()
+	{
+		return probes;
+	}
+
+	//Return the number of table lookups that found the position.
+	public long getHits()
+	{
+		return hits;
+	}
+
+	//Return the share of table lookups that found the position.
+	public double getHashHitRate()
+	{
+		if (probes == 0)
+		{
+			return 0;
+		}
+		return (double)hits/probes;
+	}
+
+	//Return the number of beta cutoffs.
+	public long getCutoffs()
+	{
+		return cutoffs;
+	}
+
+	//Return the number of beta cutoffs caused by the first move searched.
+	public long getFirstMoveCutoffs()
+	{
+		return firstCutoffs;
+	}
+
+	//Return the number of moves that beat a null window and were searched
+	// again with the whole window.
+	public long getResearches()
+	{
+		return researches;
+	}
+
+	//Return the number of iterations whose score fell outside their
+	// aspiration window, so that they were searched again.
+	public long getWindowMisses()
+	{
+		return windowMisses;
+	}
+
+	//Return the number of positions visited searching moves and iterations
+	// again. They are counted in getNodes() as well.
+	public long getResearchNodes()
+	{
+		return researchNodes;
+	}
+
+	//Return the share of the nodes spent searching again.
+	public double getResearchRate()
+	{
+		if (nodes == 0)
+		{
+			return 0;
+		}
+		return (double)researchNodes/nodes;
+	}
+
+	public String toString()
+	{
+		return String.format("depth %d, %d nodes, %d leaves, %.0f nodes/s, branching %.2f, "
+			+ "hash hits %.1f%%, %d cutoffs (%.1f%% first move), "
+			+ "%d re-searches and %d window misses (%.1f%% of nodes)",
+			depth,nodes,leaves,getNodesPerSecond(),getBranchingFactor(),100*getHashHitRate(),
+			cutoffs,cutoffs == 0 ? 0 : 100.0*firstCutoffs/cutoffs,
+			researches,windowMisses,100*getResearchRate());
+	}
+}
@@ -0,0 +1,309 @@
+/**
+ * SelfPlay.java
+ *
+ * Plays two engine configurations against each other without the GUI,
+ * many games at once on all processors, and reports the results: games
+ * per second, the first engine's wins, draws and losses, and how long
+ * each engine took per move.
+ *
+ * Every game starts from a few random moves, and each opening is played
+ * twice, once with each engine moving first after it, so neither engine
+ * gains from the luck of the opening. The random openings are the same
+ * every run for a given seed.
+ *
+ * An engine is given as depth[/millis][:variant]:
+ *   depth    how many moves Minimax looks ahead (2, 4, 6 as in the GUI)
+ *   millis   a time limit per move, if any
+ *   variant  eval, Minimax's heuristic search (the default), or solve,
+ *            perfect play with Solver, which ignores depth and time
+ * e.g. 6, 12/200, 0:solve
+ *
+ * The grid is given as colsxrowsxconnect, e.g. 9x7x4 or 10x8x5.
+ *
+ * Usage: java SelfPlay [games] [engine A] [engine B] [opening moves] [seed] [grid]
+ *  (defaults 1000, 6, 4, 4, 1 and 7x6x4)
+ *
+ */
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class SelfPlay
+{
+	//The grid played on.
+	private static int width = ConnectFourModel.WIDTH;
+	private static int height = ConnectFourModel.HEIGHT;
+	private static int connect = ConnectFourModel.CONNECT;
+
+	//Slots in each side's transposition table: 2^16, as Minimax makes for
+	// a search of its own.
+	private static final int TABLE_BITS = 16;
+
+	//One side's settings, and the time each of its moves took.
+	private static class Engine
+	{
+		final String name;
+		final int depth;
+		final long millis;
+		final List<Long> latencies = Collections.synchronizedList(new ArrayList<Long>());
+
+		Engine(String spec)
+		{
+			name = spec;
+			String s = spec;
+			boolean solve = false;
+			int colon = s.indexOf(':');
+			if (colon >= 0)
+			{
+				String variant = s.substring(colon+1);
+				if (variant.equals("solve"))
+				{
+					solve = true;
+				}
+				else if (!variant.equals("eval"))
+				{
+					throw new IllegalArgumentException("unknown variant: " + variant);
+				}
+				s = s.substring(0,colon);
+			}
+			int slash = s.indexOf('/');
+			if (slash >= 0)
+			{
+				millis = Long.parseLong(s.substring(slash+1));
+				s = s.substring(0,slash);
+			}
+			else
+			{
+				millis = 0;
+			}
+			if (solve)
+			{
+				depth = Minimax.PERFECT;
+			}
+			else
+			{
+				depth = Integer.parseInt(s);
+			}
+		}
+
+		//Return this engine's column for the model's grid, player to move,
+		// searching with the side's table for the game.
+		int move(ConnectFourModel model, TranspositionTable table)
+		{
+			//Minimax always plays player 2, so show it player 1's grid
+			// with the checkers swapped.
+			Position p = model.getPosition();
+			if (model.getPlayer() == 1)
+			{
+				ConnectFourModel swapped = new ConnectFourModel(width,height,connect);
+				swapped.setGrid(swap(model.getGrid()),2);
+				p = swapped.getPosition();
+			}
+			Minimax comp = new Minimax(p,depth,table);
+			comp.setTimeLimit(millis);
+			long start = System.nanoTime();
+			int col = comp.calcValue();
+			latencies.add(System.nanoTime() - start);
+			return col;
+		}
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		int games = 1000;
+		String specA = "6";
+		String specB = "4";
+		int openingMoves = 4;
+		long seed = 1;
+		if (args.length > 0)
+		{
+			games = Integer.parseInt(args[0]);
+		}
+		if (args.length > 1)
+		{
+			specA = args[1];
+		}
+		if (args.length > 2)
+		{
+			specB = args[2];
+		}
+		if (args.length > 3)
+		{
+			openingMoves = Integer.parseInt(args[3]);
+		}
+		if (args.length > 4)
+		{
+			seed = Long.parseLong(args[4]);
+		}
+		if (args.length > 5)
+		{
+			String[] dims = args[5].split("x");
+			width = Integer.parseInt(dims[0]);
+			height = Integer.parseInt(dims[1]);
+			connect = Integer.parseInt(dims[2]);
+		}
+
+		final Engine a = new Engine(specA);
+		final Engine b = new Engine(specB);
+		Random random = new Random(seed);
+		int threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+
+		long start = System.nanoTime();
+		for (int g=0; g<games; g+=2)
+		{
+			final int[] opening = opening(random,openingMoves);
+			results.add(pool.submit(new Callable<Integer>()
+			{
+				public Integer call()
+				{
+					return play(opening,a,b);
+				}
+			}));
+			if (g+1 < games)
+			{
+				results.add(pool.submit(new Callable<Integer>()
+				{
+					public Integer call()
+					{
+						return -play(opening,b,a);
+					}
+				}));
+			}
+		}
+		int wins = 0;
+		int draws = 0;
+		int losses = 0;
+		for (Future<Integer> f : results)
+		{
+			int r = f.get();
+			if (r > 0)
+			{
+				wins++;
+			}
+			else if (r == 0)
+			{
+				draws++;
+			}
+			else
+			{
+				losses++;
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		pool.shutdown();
+
+		int n = results.size();
+		System.out.printf("%d games on %d threads in %.1f s: %.1f games/s%n",
+			n,threads,seconds,n/seconds);
+		System.out.printf("%s against %s: %.1f%% wins, %.1f%% draws, %.1f%% losses%n",
+			a.name,b.name,100.0*wins/n,100.0*draws/n,100.0*losses/n);
+		System.out.println("engine        moves   mean ms    p50 ms    p90 ms    p99 ms    max ms");
+		report(a);
+		report(b);
+	}
+
+	//Play one game from the opening, first moving first after it.
+	// Returns 1 if first wins, -1 if second wins, 0 for a draw.
+	private static int play(int[] opening, Engine first, Engine second)
+	{
+		ConnectFourModel model = new ConnectFourModel(width,height,connect);
+		for (int i=0; i<opening.length; i++)
+		{
+			model.drop(opening[i]);
+		}
+		int firstPlayer = model.getPlayer();
+		//Each side keeps one table for the whole game.
+		TranspositionTable firstTable = new TranspositionTable(TABLE_BITS);
+		TranspositionTable secondTable = new TranspositionTable(TABLE_BITS);
+		while (!model.win() && !model.full())
+		{
+			if (model.getPlayer() == firstPlayer)
+			{
+				model.drop(first.move(model,firstTable));
+			}
+			else
+			{
+				model.drop(second.move(model,secondTable));
+			}
+		}
+		if (!model.win())
+		{
+			return 0;
+		}
+		//The player who won made the last move, so is not the one to move.
+		return model.getPlayer() == firstPlayer ? -1 : 1;
+	}
+
+	//Return random moves from the empty grid that neither fill a column
+	// nor win.
+	private static int[] opening(Random random, int moves)
+	{
+		ConnectFourModel model = new ConnectFourModel(width,height,connect);
+		int[] cols = new int[moves];
+		for (int i=0; i<moves; )
+		{
+			int col = random.nextInt(width);
+			if (model.drop(col) != -1)
+			{
+				if (model.win())
+				{
+					model.undo(col);
+					continue;
+				}
+				cols[i++] = col;
+			}
+		}
+		return cols;
+	}
+
+	private static int[][] swap(int[][] grid)
+	{
+		int[][] swapped = new int[grid.length][grid[0].length];
+		for (int col=0; col<grid.length; col++)
+		{
+			for (int row=0; row<grid[0].length; row++)
+			{
+				if (grid[col][row] != 0)
+				{
+					swapped[col][row] = 3 - grid[col][row];
+				}
+			}
+		}
+		return swapped;
+	}
+
+	private static void report(Engine e)
+	{
+		long[] t;
+		synchronized (e.latencies)
+		{
+			t = new long[e.latencies.size()];
+			for (int i=0; i<t.length; i++)
+			{
+				t[i] = e.latencies.get(i);
+			}
+		}
+		Arrays.sort(t);
+		long sum = 0;
+		for (int i=0; i<t.length; i++)
+		{
+			sum += t[i];
+		}
+		if (t.length == 0)
+		{
+			System.out.printf("%-12s %6d%n",e.name,0);
+			return;
+		}
+		System.out.printf("%-12s %6d %9.2f %9.2f %9.2f %9.2f %9.2f%n",e.name,t.length,
+			sum/1e6/t.length,percentile(t,50),percentile(t,90),percentile(t,99),t[t.length-1]/1e6);
+	}
+
+	//Return the p-th percentile of sorted nanoseconds, in milliseconds.
+	private static double percentile(long[] sorted, int p)
+	{
+		int i = (int)Math.ceil(p/100.0*sorted.length) - 1;
+		return sorted[Math.max(i,0)]/1e6;
+	}
+}
@@ -0,0 +1,488 @@
+/**
+ * Solver.java
+ *
+ * Finds the exact result of a position under perfect play by both
+ * players, searching to the end of the game instead of scoring leaves
+ * with eval().
+ *
+ * A position is scored for the player to move:
+ *   0 if the game is a draw,
+ *   (43 - checkers)/2 for a win with the next checker, one less for
+ *   each later checker, so the score counts how early the win comes,
+ *   and the negative of the opponent's win score for a loss.
+ * So a player to move with score s > 0 wins with their (22 - s)th checker.
+ *
+ * The score is found by null-window searches: each alpha-beta search
+ * only answers whether the score is above a guess, and the guesses
+ * narrow the possible range until it holds one value. The searches
+ * share a transposition table, so each mostly reuses the last one's work.
+ * Inside a search, moves that let the opponent win at once are never
+ * tried, a forced block is the only move tried, and the rest are tried
+ * in the order of how many winning spots they make.
+ *
+ * A position and its mirror image have the same score, so they share one
+ * table entry, and a position that is its own mirror image only tries
+ * the centre column and the columns left of it.
+ *
+ * The grid is kept as in ConnectFourModel, but as the checkers of the
+ * player to move and of both players, swapped by every move.
+ *
+ * Usage: java Solver [moves]...
+ *  Prints the score of each position, given as the columns played from
+ *  the empty grid.
+ *
+ */
+
+public class Solver
+{
+	private static final int WIDTH = 7;
+	private static final int HEIGHT = 6;
+	private static final int H1 = HEIGHT + 1;
+	private static final int SIZE = WIDTH * HEIGHT;
+
+	private static final long BOTTOM = bottomMask();
+	private static final long BOARD = BOTTOM * ((1L << HEIGHT) - 1);
+	//The centre column and those left of it.
+	private static final long LEFT = (1L << ((WIDTH/2 + 1)*H1)) - 1;
+
+	//Columns from the centre out; central checkers take part in more lines.
+	private static final int[] CENTER_OUT = {3,2,4,1,5,0,6};
+
+	//Slots in the transposition table: 2^22.
+	private static final int TABLE_BITS = 22;
+
+	//Checkers of the player to move, and of both players.
+	private long current;
+	private long mask;
+	private int moves;
+
+	//The table of every Solver made without one, allocated on first use:
+	// at 64 MB it is too big to make for every move, and what it holds
+	// stays true, so each solve starts with the last one's work.
+	private static TranspositionTable shared;
+
+	private final TranspositionTable table;
+	//Moves of each ply being sorted, reused so nothing is allocated per node.
+	private final long[][] sorted = new long[SIZE][WIDTH];
+	private final int[][] counts = new int[SIZE][WIDTH];
+	private long nodes;
+	private int score;
+	private boolean aborted;
+	private volatile boolean stopped;
+	private long deadline;
+
+	public Solver()
+	{
+		this(sharedTable());
+	}
+
+	//Same, but remember positions in the given table. Stored scores hold
+	// for the position whatever the search, so the table is never cleared.
+	public Solver(TranspositionTable tt)
+	{
+		table = tt;
+	}
+
+	//Return the table shared by Solvers made without one. Several may solve
+	// at once: the table needs no locks.
+	private static synchronized TranspositionTable sharedTable()
+	{
+		if (shared == null)
+		{
+			shared = new TranspositionTable(TABLE_BITS);
+		}
+		return shared;
+	}
+
+	public static void main(String[] args)
+	{
+		Solver solver = new Solver();
+		for (int i=0; i<args.length; i++)
+		{
+			ConnectFourModel model = new ConnectFourModel();
+			for (int j=0; j<args[i].length(); j++)
+			{
+				model.drop(args[i].charAt(j) - '0');
+			}
+			long start = System.currentTimeMillis();
+			int score = solver.solve(model.getGrid(),model.getPlayer());
+			System.out.println(args[i] + " " + score + " " + solver.getNodes()
+				+ " nodes " + (System.currentTimeMillis() - start) + " ms");
+		}
+	}
+
+	//Stop a running solve from another thread; it then returns 0, or -1
+	// from bestMove().
+	public void stop()
+	{
+		stopped = true;
+	}
+
+	//Give up solves still running at the given System.currentTimeMillis(),
+	// as if stopped then; 0, the default, lets them run to the end.
+	public void setDeadline(long millis)
+	{
+		deadline = millis;
+	}
+
+	//Return the score of the position last given to solve() or bestMove().
+	public int getScore()
+	{
+		return score;
+	}
+
+	//Return the number of positions searched by the last solve.
+	public long getNodes()
+	{
+		return nodes;
+	}
+
+	//Return the score of the grid for the given player to move.
+	// The game must not be over.
+	public int solve(int[][] grid, int player)
+	{
+		set(grid,player);
+		return solve();
+	}
+
+	//Return the best column for the given player to move, or -1 if the
+	// solve was stopped. Of equally good columns the most central is chosen.
+	public int bestMove(int[][] grid, int player)
+	{
+		set(grid,player);
+		long possible = possible();
+		long win = winningSpots(current,mask) & possible;
+		//The columns right of the centre of a grid that is its own mirror
+		// image are as good as those left of it, and less central.
+		long position = current + mask + BOTTOM;
+		if (mirror(position) == position)
+		{
+			possible &= LEFT;
+		}
+		for (int i=0; i<WIDTH; i++)
+		{
+			int col = CENTER_OUT[i];
+			if ((win & column(col)) != 0)
+			{
+				nodes = 0;
+				score = (SIZE + 1 - moves) / 2;
+				return col;
+			}
+		}
+		//The best column is the first whose score reaches the position's.
+		solve();
+		long safe = nonLosingMoves();
+		for (int i=0; i<WIDTH && !aborted; i++)
+		{
+			int col = CENTER_OUT[i];
+			long move = possible & column(col);
+			if (move == 0 || (safe != 0 && (safe & move) == 0))
+			{
+				continue;
+			}
+			if (safe == 0)
+			{
+				//Every column loses at once.
+				return col;
+			}
+			play(move);
+			int v = -negamax(-score,-score+1);
+			undo(move);
+			//A stopped search proves nothing.
+			if (aborted)
+			{
+				return -1;
+			}
+			if (v >= score)
+			{
+				return col;
+			}
+		}
+		return -1;
+	}
+
+	//Narrow the score down with null-window searches.
+	private int solve()
+	{
+		nodes = 0;
+		aborted = false;
+		if ((winningSpots(current,mask) & possible()) != 0)
+		{
+			score = (SIZE + 1 - moves) / 2;
+			return score;
+		}
+		int min = -(SIZE - moves) / 2;
+		int max = (SIZE + 1 - moves) / 2;
+		while (min < max && !aborted)
+		{
+			//Guess halfway, but nearer 0 while the range holds both wins
+			// and losses: short results are cheaper to prove.
+			int med = min + (max - min) / 2;
+			if (med <= 0 && min / 2 < med)
+			{
+				med = min / 2;
+			}
+			else if (med >= 0 && max / 2 > med)
+			{
+				med = max / 2;
+			}
+			int r = negamax(med,med+1);
+			if (r <= med)
+			{
+				max = r;
+			}
+			else
+			{
+				min = r;
+			}
+		}
+		if (aborted)
+		{
+			return 0;
+		}
+		score = min;
+		return min;
+	}
+
+	//Fail-soft alpha-beta on the position. The player to move cannot win
+	// with the next checker; callers check for that first.
+	private int negamax(int alpha, int beta)
+	{
+		nodes++;
+		if ((nodes & 1023) == 0 && (stopped
+			|| (deadline != 0 && System.currentTimeMillis() >= deadline)))
+		{
+			aborted = true;
+		}
+		if (aborted)
+		{
+			return 0;
+		}
+
+		long next = nonLosingMoves();
+		if (next == 0)
+		{
+			//The opponent wins with their next checker.
+			return -(SIZE - moves) / 2;
+		}
+		if (moves >= SIZE - 2)
+		{
+			//Neither player can win with the last two checkers.
+			return 0;
+		}
+
+		//The opponent cannot win with their next checker, so the
+		// position scores at least this.
+		int min = -(SIZE - 2 - moves) / 2;
+		if (alpha < min)
+		{
+			alpha = min;
+			if (alpha >= beta)
+			{
+				return alpha;
+			}
+		}
+		//And this player cannot win with this checker.
+		int max = (SIZE - 1 - moves) / 2;
+		long position = current + mask + BOTTOM;
+		long mirror = mirror(position);
+		if (mirror == position)
+		{
+			next &= LEFT;
+		}
+		long key = hash(Math.min(position,mirror));
+		long entry = table.probe(key);
+		if (entry != 0)
+		{
+			int score = TranspositionTable.score(entry);
+			if (TranspositionTable.bound(entry) == TranspositionTable.UPPER)
+			{
+				max = Math.min(max,score);
+			}
+			else
+			{
+				min = Math.max(min,score);
+			}
+		}
+		if (beta > max)
+		{
+			beta = max;
+			if (alpha >= beta)
+			{
+				return beta;
+			}
+		}
+		if (alpha < min)
+		{
+			alpha = min;
+			if (alpha >= beta)
+			{
+				return alpha;
+			}
+		}
+
+		//Try the moves making the most winning spots first, centre first
+		// among equals: a simple insertion sort of at most 7 moves.
+		long[] sorted = this.sorted[moves];
+		int[] counts = this.counts[moves];
+		int n = 0;
+		for (int i=WIDTH-1; i>=0; i--)
+		{
+			long move = next & column(CENTER_OUT[i]);
+			if (move != 0)
+			{
+				int count = Long.bitCount(winningSpots(current | move,mask) & ~(mask | move) & BOARD);
+				int j = n++;
+				for (; j > 0 && counts[j-1] > count; j--)
+				{
+					sorted[j] = sorted[j-1];
+					counts[j] = counts[j-1];
+				}
+				sorted[j] = move;
+				counts[j] = count;
+			}
+		}
+
+		for (int i=n-1; i>=0; i--)
+		{
+			play(sorted[i]);
+			int score = -negamax(-beta,-alpha);
+			undo(sorted[i]);
+			if (aborted)
+			{
+				return 0;
+			}
+			if (score >= beta)
+			{
+				table.store(key,0,TranspositionTable.LOWER,score,-1);
+				return score;
+			}
+			if (score > alpha)
+			{
+				alpha = score;
+			}
+		}
+		table.store(key,0,TranspositionTable.UPPER,alpha,-1);
+		return alpha;
+	}
+
+	private void set(int[][] grid, int player)
+	{
+		long mine = 0;
+		mask = 0;
+		moves = 0;
+		for (int col=0; col<WIDTH; col++)
+		{
+			for (int row=0; row<HEIGHT; row++)
+			{
+				if (grid[col][row] != 0)
+				{
+					long bit = 1L << (col*H1 + HEIGHT - 1 - row);
+					mask |= bit;
+					moves++;
+					if (grid[col][row] == player)
+					{
+						mine |= bit;
+					}
+				}
+			}
+		}
+		current = mine;
+	}
+
+	//Put a checker of the player to move on the given bit, and pass
+	// the turn: current becomes the other player's checkers.
+	private void play(long move)
+	{
+		current ^= mask;
+		mask |= move;
+		moves++;
+	}
+
+	private void undo(long move)
+	{
+		mask &= ~move;
+		current ^= mask;
+		moves--;
+	}
+
+	//Return the lowest empty slot of every column that is not full.
+	private long possible()
+	{
+		return (mask + BOTTOM) & BOARD;
+	}
+
+	//Return the playable slots that do not let the opponent win at once:
+	// not under one of the opponent's winning spots, and if the opponent
+	// can win on a playable slot, only that slot. 0 if every move loses.
+	private long nonLosingMoves()
+	{
+		long possible = possible();
+		long threats = winningSpots(current ^ mask,mask);
+		long forced = possible & threats;
+		if (forced != 0)
+		{
+			if ((forced & (forced - 1)) != 0)
+			{
+				//Two threats; only one can be blocked.
+				return 0;
+			}
+			possible = forced;
+		}
+		return possible & ~(threats >> 1);
+	}
+
+	//Return the empty slots that would give pos 4 in a row, playable or not.
+	private static long winningSpots(long pos, long mask)
+	{
+		//Vertical: three checkers right below.
+		long r = (pos << 1) & (pos << 2) & (pos << 3);
+		//The other lines, shift d apart: the spot may be at either end
+		// or in either of the two middle places.
+		for (int d = H1-1; d <= H1+1; d++)
+		{
+			long p = (pos << d) & (pos << 2*d);
+			r |= p & (pos << 3*d);
+			r |= p & (pos >> d);
+			p = (pos >> d) & (pos >> 2*d);
+			r |= p & (pos << d);
+			r |= p & (pos >> 3*d);
+		}
+		return r & (BOARD ^ mask);
+	}
+
+	private static long column(int col)
+	{
+		return ((1L << HEIGHT) - 1) << (col*H1);
+	}
+
+	//Return the key of the mirror image of the position with the given key.
+	// Each column's bits of a key lie within the column.
+	private static long mirror(long key)
+	{
+		long mirror = 0;
+		for (int col=0; col<WIDTH; col++)
+		{
+			mirror |= ((key >>> (col*H1)) & 0x7f) << ((WIDTH - 1 - col)*H1);
+		}
+		return mirror;
+	}
+
+	//Spread the position key over all 64 bits, since the table indexes by
+	// its low bits. Every step can be undone, so keys stay unique.
+	private static long hash(long key)
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		return h ^ (h >>> 32);
+	}
+
+	private static long bottomMask()
+	{
+		long bottom = 0;
+		for (int col=0; col<WIDTH; col++)
+		{
+			bottom |= 1L << (col*H1);
+		}
+		return bottom;
+	}
+}
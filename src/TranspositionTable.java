@@ -0,0 +1,126 @@
+/**
+ * TranspositionTable.java
+ *
+ * Remembers the result of searched positions so that a position reached
+ * through a different move order is not searched again.
+ *
+ * The table has a power-of-two number of slots, each a pair of longs:
+ * the packed entry, and the position key XORed with that entry
+ *
+ *   bits  0-31  score
+ *   bits 32-39  depth searched below the position
+ *   bits 40-41  bound type (EXACT, LOWER or UPPER)
+ *   bits 42-47  best column + 1 (0 if none)
+ *   bit  48     set on every stored entry
+ *   bit  49     set if stored for the mirror image of the position
+ *
+ * A position and its mirror image may share one slot, stored under the
+ * smaller of their two keys. The mirror bit tells which of the two the
+ * entry was searched for; the best column is the one in that position.
+ *
+ * A slot is replaced only by an entry searched at least as deep, or by
+ * the same position.
+ *
+ * Several search threads may share one table without locks. A slot whose
+ * two longs come from different writes no longer XORs back to the key,
+ * so a torn or overwritten slot simply reads as a miss.
+ *
+ */
+
+public class TranspositionTable
+{
+	public static final int EXACT = 0;
+	public static final int LOWER = 1;
+	public static final int UPPER = 2;
+
+	private static final long USED = 1L << 48;
+	private static final long MIRROR = 1L << 49;
+
+	private final long[] keys;
+	private final long[] entries;
+	private final int mask;
+
+	//Create a table with 2^bits slots.
+	public TranspositionTable(int bits)
+	{
+		keys = new long[1 << bits];
+		entries = new long[1 << bits];
+		mask = (1 << bits) - 1;
+	}
+
+	//Return the number of slots.
+	public int size()
+	{
+		return keys.length;
+	}
+
+	//Forget every stored position.
+	public void clear()
+	{
+		java.util.Arrays.fill(keys,0);
+		java.util.Arrays.fill(entries,0);
+	}
+
+	//Return the packed entry stored for key, or 0 if there is none.
+	public long probe(long key)
+	{
+		int i = (int)key & mask;
+		long entry = entries[i];
+		if (entry != 0 && (keys[i] ^ entry) == key)
+		{
+			return entry;
+		}
+		return 0;
+	}
+
+	//Store a search result for key, keeping the deeper of the two entries.
+	public void store(long key, int depth, int bound, int score, int move)
+	{
+		store(key,depth,bound,score,move,false);
+	}
+
+	//Same, marking whether the result is for the mirror image of the
+	// position key stands for.
+	public void store(long key, int depth, int bound, int score, int move, boolean mirrored)
+	{
+		int i = (int)key & mask;
+		long old = entries[i];
+		if (old == 0 || (keys[i] ^ old) == key || depth >= depth(old))
+		{
+			long entry = (score & 0xffffffffL)
+				| ((long)depth << 32)
+				| ((long)bound << 40)
+				| ((long)(move+1) << 42)
+				| (mirrored ? MIRROR : 0)
+				| USED;
+			entries[i] = entry;
+			keys[i] = key ^ entry;
+		}
+	}
+
+	//Accessors for a packed entry returned by probe().
+	public static int score(long entry)
+	{
+		return (int)entry;
+	}
+
+	public static int depth(long entry)
+	{
+		return (int)(entry >>> 32) & 0xff;
+	}
+
+	public static int bound(long entry)
+	{
+		return (int)(entry >>> 40) & 0x3;
+	}
+
+	public static int move(long entry)
+	{
+		return ((int)(entry >>> 42) & 0x3f) - 1;
+	}
+
+	public static boolean mirrored(long entry)
+	{
+		return (entry & MIRROR) != 0;
+	}
+}